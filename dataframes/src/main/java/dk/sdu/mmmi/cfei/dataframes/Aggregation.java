@@ -0,0 +1,42 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+/**
+ * An aggregation of the values falling in a group.
+ *
+ * Missing values (NaN) are ignored. Empty groups have count and sum zero and
+ * NaN mean, minimum and maximum.
+ *
+ * @author cgim
+ */
+public enum Aggregation {
+    COUNT,
+    SUM,
+    MEAN,
+    MIN,
+    MAX;
+
+    /**
+     * Compute the aggregated value from the accumulated statistics of a
+     * group.
+     *
+     * @param count The number of values.
+     * @param sum The sum of values.
+     * @param min The minimal value.
+     * @param max The maximal value.
+     * @return The aggregated value.
+     */
+    double finish(long count, double sum, double min, double max) {
+        switch (this) {
+            case COUNT:
+                return count;
+            case SUM:
+                return sum;
+            case MEAN:
+                return count == 0 ? Double.NaN : sum / count;
+            case MIN:
+                return count == 0 ? Double.NaN : min;
+            default:
+                return count == 0 ? Double.NaN : max;
+        }
+    }
+}
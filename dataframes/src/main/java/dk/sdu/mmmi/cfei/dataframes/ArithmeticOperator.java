@@ -0,0 +1,196 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+/**
+ * An element-wise binary operator on columns of doubles.
+ *
+ * Every operator is implemented as a plain loop over primitive arrays, which
+ * the JIT compiler can unroll and vectorize.
+ *
+ * @author cgim
+ */
+public enum ArithmeticOperator {
+
+    ADD {
+        @Override
+        public double applyAsDouble(double left, double right) {
+            return left + right;
+        }
+
+        @Override
+        public void apply(double[] left, double[] right, double[] result) {
+            final int n = checkLengths(left, right, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = left[i] + right[i];
+            }
+        }
+
+        @Override
+        public void apply(double[] left, double right, double[] result) {
+            final int n = checkLengths(left, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = left[i] + right;
+            }
+        }
+    },
+    SUBTRACT {
+        @Override
+        public double applyAsDouble(double left, double right) {
+            return left - right;
+        }
+
+        @Override
+        public void apply(double[] left, double[] right, double[] result) {
+            final int n = checkLengths(left, right, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = left[i] - right[i];
+            }
+        }
+
+        @Override
+        public void apply(double[] left, double right, double[] result) {
+            final int n = checkLengths(left, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = left[i] - right;
+            }
+        }
+    },
+    MULTIPLY {
+        @Override
+        public double applyAsDouble(double left, double right) {
+            return left * right;
+        }
+
+        @Override
+        public void apply(double[] left, double[] right, double[] result) {
+            final int n = checkLengths(left, right, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = left[i] * right[i];
+            }
+        }
+
+        @Override
+        public void apply(double[] left, double right, double[] result) {
+            final int n = checkLengths(left, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = left[i] * right;
+            }
+        }
+    },
+    DIVIDE {
+        @Override
+        public double applyAsDouble(double left, double right) {
+            return left / right;
+        }
+
+        @Override
+        public void apply(double[] left, double[] right, double[] result) {
+            final int n = checkLengths(left, right, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = left[i] / right[i];
+            }
+        }
+
+        @Override
+        public void apply(double[] left, double right, double[] result) {
+            final int n = checkLengths(left, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = left[i] / right;
+            }
+        }
+    },
+    MIN {
+        @Override
+        public double applyAsDouble(double left, double right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public void apply(double[] left, double[] right, double[] result) {
+            final int n = checkLengths(left, right, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = Math.min(left[i], right[i]);
+            }
+        }
+
+        @Override
+        public void apply(double[] left, double right, double[] result) {
+            final int n = checkLengths(left, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = Math.min(left[i], right);
+            }
+        }
+    },
+    MAX {
+        @Override
+        public double applyAsDouble(double left, double right) {
+            return Math.max(left, right);
+        }
+
+        @Override
+        public void apply(double[] left, double[] right, double[] result) {
+            final int n = checkLengths(left, right, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = Math.max(left[i], right[i]);
+            }
+        }
+
+        @Override
+        public void apply(double[] left, double right, double[] result) {
+            final int n = checkLengths(left, result);
+            for (int i = 0; i < n; ++i) {
+                result[i] = Math.max(left[i], right);
+            }
+        }
+    };
+
+    /**
+     * Apply the operator to two values.
+     *
+     * @param left The left operand.
+     * @param right The right operand.
+     * @return The result.
+     */
+    public abstract double applyAsDouble(double left, double right);
+
+    /**
+     * Apply the operator element-wise to two arrays.
+     *
+     * The result array can be one of the operands.
+     *
+     * @param left The left operands.
+     * @param right The right operands.
+     * @param result The array where to store the results.
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public abstract void apply(double[] left, double[] right, double[] result);
+
+    /**
+     * Apply the operator element-wise to an array and a scalar.
+     *
+     * The result array can be the left operand.
+     *
+     * @param left The left operands.
+     * @param right The right operand.
+     * @param result The array where to store the results.
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public abstract void apply(double[] left, double right, double[] result);
+
+    private static int checkLengths(double[] left, double[] right, double[] result) {
+        if (left.length != right.length) {
+            throw new IllegalArgumentException(
+                    "Operands have different sizes: "
+                    + left.length + " and " + right.length);
+        }
+        return checkLengths(left, result);
+    }
+
+    private static int checkLengths(double[] operand, double[] result) {
+        if (operand.length != result.length) {
+            throw new IllegalArgumentException(
+                    "Result has size " + result.length
+                    + " instead of " + operand.length);
+        }
+        return operand.length;
+    }
+}
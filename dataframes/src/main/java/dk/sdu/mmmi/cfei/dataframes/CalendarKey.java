@@ -0,0 +1,67 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * A calendar field used to group readings, such as the hour of the day.
+ *
+ * @author cgim
+ */
+public enum CalendarKey {
+    /**
+     * Hour of the day, from 0 to 23.
+     */
+    HOUR_OF_DAY(24, ChronoUnit.HOURS),
+    /**
+     * Day of the week, from 0 (Monday) to 6 (Sunday).
+     */
+    DAY_OF_WEEK(7, ChronoUnit.DAYS),
+    /**
+     * Month of the year, from 0 (January) to 11 (December).
+     */
+    MONTH(12, ChronoUnit.MONTHS);
+
+    CalendarKey(int size, ChronoUnit period) {
+        this.size = size;
+        this.period = period;
+    }
+
+    /**
+     * Return the number of distinct keys.
+     *
+     * @return The number of keys.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Return the calendar period over which the key is constant.
+     *
+     * @return The period unit.
+     */
+    ChronoUnit getPeriod() {
+        return this.period;
+    }
+
+    /**
+     * Return the key of a datetime.
+     *
+     * @param datetime The datetime.
+     * @return The key, between 0 and {@link #size()} excluded.
+     */
+    public int keyOf(ZonedDateTime datetime) {
+        switch (this) {
+            case HOUR_OF_DAY:
+                return datetime.getHour();
+            case DAY_OF_WEEK:
+                return datetime.getDayOfWeek().getValue() - 1;
+            default:
+                return datetime.getMonthValue() - 1;
+        }
+    }
+
+    private final int size;
+    private final ChronoUnit period;
+}
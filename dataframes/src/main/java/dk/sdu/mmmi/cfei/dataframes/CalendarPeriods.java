@@ -0,0 +1,143 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+
+/**
+ * Utilities to split a timeline into calendar periods in a given time zone.
+ *
+ * Converting every instant to a zoned datetime is expensive. Since readings
+ * are sorted, consecutive readings usually fall in the same period, so the
+ * period boundaries are computed once per period and instants are then
+ * compared as plain milliseconds.
+ *
+ * @author cgim
+ */
+final class CalendarPeriods {
+
+    private CalendarPeriods() {
+    }
+
+    /**
+     * Return the start of the period containing a datetime.
+     *
+     * @param datetime The datetime.
+     * @param unit The period unit, among minutes, hours, days, weeks, months
+     * and years.
+     * @return The start of the period.
+     */
+    static ZonedDateTime truncate(ZonedDateTime datetime, ChronoUnit unit) {
+        switch (unit) {
+            case MINUTES:
+            case HOURS:
+            case DAYS:
+                return datetime.truncatedTo(unit);
+            case WEEKS:
+                return datetime.truncatedTo(ChronoUnit.DAYS)
+                        .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHS:
+                return datetime.truncatedTo(ChronoUnit.DAYS)
+                        .withDayOfMonth(1);
+            case YEARS:
+                return datetime.truncatedTo(ChronoUnit.DAYS)
+                        .withDayOfYear(1);
+            default:
+                throw new IllegalArgumentException(
+                        "Unsupported calendar period: " + unit);
+        }
+    }
+
+    /**
+     * Return the start of the period following a period.
+     *
+     * @param start The start of a period.
+     * @param unit The period unit.
+     * @return The start of the next period.
+     */
+    static ZonedDateTime next(ZonedDateTime start, ChronoUnit unit) {
+        // Truncating again handles days starting at a time different than
+        // midnight, because of daylight saving time transitions.
+        return truncate(start.plus(1, unit), unit);
+    }
+
+    /**
+     * Compute the boundaries of the consecutive periods covering a time range.
+     *
+     * @param first The first instant, as milliseconds since the epoch.
+     * @param last The last instant, as milliseconds since the epoch.
+     * @param zone The time zone of the periods.
+     * @param unit The period unit.
+     * @return The start of every period, followed by the end of the last one.
+     */
+    static long[] boundaries(long first, long last, ZoneId zone, ChronoUnit unit) {
+        long[] result = new long[16];
+        int n = 0;
+        ZonedDateTime period = truncate(Instant.ofEpochMilli(first).atZone(zone), unit);
+        long start = period.toInstant().toEpochMilli();
+        while (true) {
+            if (n == result.length) {
+                result = Arrays.copyOf(result, 2 * n);
+            }
+            result[n] = start;
+            n += 1;
+            if (start > last) {
+                break;
+            }
+            period = next(period, unit);
+            start = period.toInstant().toEpochMilli();
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Walks a sorted timeline, converting an instant to a zoned datetime only
+     * when it falls outside the current period.
+     */
+    static class Cursor {
+
+        Cursor(ZoneId zone, ChronoUnit unit) {
+            this.zone = zone;
+            this.unit = unit;
+            this.start = Long.MAX_VALUE;
+            this.end = Long.MIN_VALUE;
+        }
+
+        /**
+         * Move the cursor to the period containing an instant.
+         *
+         * @param epochMillis The instant.
+         * @return True if the period changed.
+         */
+        boolean moveTo(long epochMillis) {
+            if (epochMillis >= this.start && epochMillis < this.end) {
+                return false;
+            }
+            this.period = truncate(
+                    Instant.ofEpochMilli(epochMillis).atZone(this.zone),
+                    this.unit);
+            this.start = this.period.toInstant().toEpochMilli();
+            this.end = next(this.period, this.unit).toInstant().toEpochMilli();
+            return true;
+        }
+
+        /**
+         * Return the start of the current period.
+         *
+         * @return A zoned datetime.
+         */
+        ZonedDateTime getPeriod() {
+            return this.period;
+        }
+
+        private final ZoneId zone;
+        private final ChronoUnit unit;
+        private ZonedDateTime period;
+        private long start;
+        private long end;
+    }
+}
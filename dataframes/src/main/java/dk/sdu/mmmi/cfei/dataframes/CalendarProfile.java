@@ -0,0 +1,126 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of grouping a data frame by a calendar key.
+ *
+ * For instance, grouping by hour of the day with the mean aggregation gives
+ * the average daily profile of each column.
+ *
+ * <pre>
+ * {@code
+ * CalendarProfile profile = dataFrame.groupBy(
+ *         CalendarKey.HOUR_OF_DAY, ZoneId.of("Europe/Copenhagen"),
+ *         Aggregation.MEAN, Aggregation.MAX);
+ * double[] meanLoad = profile.getValues(load, Aggregation.MEAN);
+ * }
+ * </pre>
+ *
+ * @author cgim
+ */
+public class CalendarProfile {
+
+    CalendarProfile(
+            CalendarKey key,
+            ZoneId zone,
+            List<Measure> columns,
+            List<Aggregation> aggregations,
+            double[][][] values) {
+        this.key = key;
+        this.zone = zone;
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.aggregations = Collections.unmodifiableList(new ArrayList<>(aggregations));
+        this.values = values;
+    }
+
+    /**
+     * Return the calendar key.
+     *
+     * @return The calendar key.
+     */
+    public CalendarKey getKey() {
+        return this.key;
+    }
+
+    /**
+     * Return the time zone used to compute the keys.
+     *
+     * @return The time zone.
+     */
+    public ZoneId getZone() {
+        return this.zone;
+    }
+
+    /**
+     * Return the grouped columns.
+     *
+     * @return A list of columns.
+     */
+    public List<Measure> getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Return the computed aggregations.
+     *
+     * @return A list of aggregations.
+     */
+    public List<Aggregation> getAggregations() {
+        return this.aggregations;
+    }
+
+    /**
+     * Return the aggregated values of a column, one per key.
+     *
+     * @param measure The column.
+     * @param aggregation The aggregation.
+     * @return A new array of {@link CalendarKey#size()} values.
+     * @throws IllegalArgumentException if the column or the aggregation was
+     * not computed
+     */
+    public double[] getValues(Measure measure, Aggregation aggregation) {
+        final int i = this.columns.indexOf(measure);
+        final int j = this.aggregations.indexOf(aggregation);
+        if (i < 0 || j < 0) {
+            throw new IllegalArgumentException(
+                    "No aggregation " + aggregation + " for column " + measure);
+        }
+        return this.values[i][j].clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(this.key);
+        for (Measure column : this.columns) {
+            for (Aggregation aggregation : this.aggregations) {
+                builder.append(", ");
+                builder.append(column.name);
+                builder.append(' ');
+                builder.append(aggregation);
+            }
+        }
+        builder.append("\n");
+        for (int k = 0; k < this.key.size(); ++k) {
+            builder.append(k);
+            for (double[][] columnValues : this.values) {
+                for (double[] aggregationValues : columnValues) {
+                    builder.append(", ");
+                    builder.append(aggregationValues[k]);
+                }
+            }
+            builder.append("\n");
+        }
+        return "CalendarProfile{" + builder.toString() + '}';
+    }
+
+    private final CalendarKey key;
+    private final ZoneId zone;
+    private final List<Measure> columns;
+    private final List<Aggregation> aggregations;
+    private final double[][][] values;
+}
@@ -0,0 +1,225 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A column of strings taking few distinct values, such as flags, states or
+ * modes, stored as an array of integer codes and a dictionary of the distinct
+ * values.
+ *
+ * Each row costs one integer instead of one reference to a string, and
+ * comparing or grouping rows compares integers. Missing values are
+ * {@code null}, with code -1.
+ *
+ * The column is a list of strings, so it can be added to a data frame like
+ * any other column, and equals any list holding the same strings.
+ *
+ * @author cgim
+ */
+public class CategoricalColumn extends AbstractList<String> implements RandomAccess {
+
+    /**
+     * Create an empty column.
+     */
+    public CategoricalColumn() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty column.
+     *
+     * @param i Number of elements to preallocate.
+     */
+    public CategoricalColumn(int i) {
+        this.codes = new int[Math.max(i, 1)];
+        this.size = 0;
+        this.dictionary = new ArrayList<>();
+        this.lookup = new HashMap<>();
+    }
+
+    /**
+     * Encode a list of strings.
+     *
+     * @param values The strings.
+     * @return A new column.
+     */
+    public static CategoricalColumn of(List<String> values) {
+        CategoricalColumn column = new CategoricalColumn(values.size());
+        for (String value : values) {
+            column.add(value);
+        }
+        return column;
+    }
+
+    /**
+     * Copy the column.
+     *
+     * @return A new column, independent of this one.
+     */
+    public CategoricalColumn copy() {
+        CategoricalColumn column = new CategoricalColumn(0);
+        column.codes = Arrays.copyOf(this.codes, Math.max(this.size, 1));
+        column.size = this.size;
+        column.dictionary.addAll(this.dictionary);
+        column.lookup.putAll(this.lookup);
+        return column;
+    }
+
+    @Override
+    public String get(int i) {
+        checkIndex(i);
+        final int code = this.codes[i];
+        return code == MISSING ? null : this.dictionary.get(code);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean add(String value) {
+        if (this.size == this.codes.length) {
+            this.codes = Arrays.copyOf(this.codes, 2 * this.size);
+        }
+        this.codes[this.size] = encode(value);
+        this.size += 1;
+        this.modCount += 1;
+        return true;
+    }
+
+    @Override
+    public String set(int i, String value) {
+        final String previous = get(i);
+        this.codes[i] = encode(value);
+        return previous;
+    }
+
+    /**
+     * Return the code of the value at a given position.
+     *
+     * @param i The position.
+     * @return The code, or -1 if the value is missing.
+     */
+    public int getCode(int i) {
+        checkIndex(i);
+        return this.codes[i];
+    }
+
+    /**
+     * Return the code of a value.
+     *
+     * @param value The value.
+     * @return The code, or -1 if the value is null or not in the column.
+     */
+    public int codeOf(String value) {
+        final Integer code = value == null ? null : this.lookup.get(value);
+        return code == null ? MISSING : code;
+    }
+
+    /**
+     * Return the distinct values of the column, in order of first
+     * appearance, i.e., by code.
+     *
+     * @return A read-only list of values.
+     */
+    public List<String> getDictionary() {
+        return Collections.unmodifiableList(this.dictionary);
+    }
+
+    /**
+     * Return the number of distinct values, excluding missing values.
+     *
+     * @return The number of distinct values.
+     */
+    public int cardinality() {
+        return this.dictionary.size();
+    }
+
+    /**
+     * Find the positions holding a value.
+     *
+     * @param value The value, or null for missing values.
+     * @return The set of positions.
+     */
+    public BitSet equalTo(String value) {
+        final BitSet result = new BitSet(this.size);
+        final int code = codeOf(value);
+        if (code == MISSING && value != null) {
+            return result;
+        }
+        for (int i = 0; i < this.size; ++i) {
+            if (this.codes[i] == code) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Count the occurrences of every value.
+     *
+     * @return The number of occurrences, indexed by code.
+     */
+    public int[] countByCode() {
+        final int[] result = new int[this.dictionary.size()];
+        for (int i = 0; i < this.size; ++i) {
+            final int code = this.codes[i];
+            if (code != MISSING) {
+                result[code] += 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Count the occurrences of every value.
+     *
+     * @return The number of occurrences by value, in dictionary order.
+     */
+    public Map<String, Integer> counts() {
+        final int[] counts = countByCode();
+        final Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; ++code) {
+            result.put(this.dictionary.get(code), counts[code]);
+        }
+        return result;
+    }
+
+    private int encode(String value) {
+        if (value == null) {
+            return MISSING;
+        }
+        Integer code = this.lookup.get(value);
+        if (code == null) {
+            code = this.dictionary.size();
+            this.dictionary.add(value);
+            this.lookup.put(value, code);
+        }
+        return code;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= this.size) {
+            throw new IndexOutOfBoundsException(
+                    "Index: " + i + ", Size: " + this.size);
+        }
+    }
+
+    private int[] codes;
+    private int size;
+    private final List<String> dictionary;
+    private final Map<String, Integer> lookup;
+
+    private static final int MISSING = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+}
@@ -0,0 +1,323 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An append-only time series of double values supporting one writer and many
+ * concurrent readers.
+ *
+ * A single thread may call {@link #addReading(Instant, double)} while any
+ * number of threads read the time series without locking. Every append is
+ * published through a volatile write of the length, so a reader observing a
+ * given length also observes all the readings up to that length.
+ *
+ * Readers should capture a consistent view once through {@link #snapshot()} or
+ * {@link #iterator()}, instead of calling {@link #size()} and
+ * {@link #getReading(int)} separately while the writer is appending.
+ *
+ * @author cgim
+ */
+public class ConcurrentTimeSeries implements Iterable<Reading<Double>> {
+
+    /**
+     * Create an empty time series.
+     */
+    public ConcurrentTimeSeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty time series.
+     *
+     * @param i Number of elements to preallocate.
+     */
+    public ConcurrentTimeSeries(int i) {
+        this.buffer = new Buffer(Math.max(i, 1));
+        this.length = 0;
+    }
+
+    /**
+     * Append a reading to the time series.
+     *
+     * Must be called by at most one thread at a time, and datetimes must be
+     * monotonous increasing.
+     *
+     * @param datetime The datetime.
+     * @param value The value.
+     */
+    public void addReading(Instant datetime, double value) {
+        addReading(datetime.toEpochMilli(), value);
+    }
+
+    /**
+     * Append a reading to the time series.
+     *
+     * Must be called by at most one thread at a time, and datetimes must be
+     * monotonous increasing.
+     *
+     * @param epochMillis The datetime as milliseconds since the epoch.
+     * @param value The value.
+     */
+    public void addReading(long epochMillis, double value) {
+        final int n = this.length;
+        Buffer current = this.buffer;
+        if (n == current.datetimes.length) {
+            // Readers may still hold the old buffer, so it is never modified
+            // after being replaced. The new buffer is published before the
+            // length, hence no reader can see a length exceeding its buffer.
+            current = current.grow(n * 2);
+            this.buffer = current;
+        }
+        current.datetimes[n] = epochMillis;
+        current.values[n] = value;
+        this.length = n + 1;
+    }
+
+    /**
+     * Return the published size of the time series.
+     *
+     * @return The size of the time series.
+     */
+    public int size() {
+        return this.length;
+    }
+
+    /**
+     * Return a reading at a given position.
+     *
+     * @param i The position.
+     * @return A reading.
+     * @throws IndexOutOfBoundsException if the position has not been published
+     */
+    public Reading<Double> getReading(int i) {
+        return snapshot().getReading(i);
+    }
+
+    /**
+     * Return a reading at the last published position.
+     *
+     * @return A reading.
+     * @throws IndexOutOfBoundsException if the time series is empty
+     */
+    public Reading<Double> getLastReading() {
+        final Snapshot snapshot = snapshot();
+        return snapshot.getReading(snapshot.size() - 1);
+    }
+
+    /**
+     * Capture a consistent view of the readings published so far.
+     *
+     * The view is not affected by later appends and does not copy any data.
+     *
+     * @return A snapshot of the time series.
+     */
+    public Snapshot snapshot() {
+        // Read the length first: the volatile read guarantees that the buffer
+        // read afterwards contains at least that many readings.
+        final int n = this.length;
+        return new Snapshot(this.buffer, n);
+    }
+
+    /**
+     * Copy the readings published so far to a regular time series.
+     *
+     * @return A time series.
+     */
+    public TimeSeries<Double> toTimeSeries() {
+        return snapshot().toTimeSeries();
+    }
+
+    /**
+     * Perform an operation on every reading published so far, in order.
+     *
+     * @param action The operation.
+     */
+    public void forEach(LongDoubleConsumer action) {
+        snapshot().forEach(action);
+    }
+
+    /**
+     * Access the time series as a stream of readings.
+     *
+     * @return A stream of the readings published when the stream is created.
+     */
+    public Stream<Reading<Double>> stream() {
+        return snapshot().stream();
+    }
+
+    @Override
+    public Iterator<Reading<Double>> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * An immutable view of the first readings of a concurrent time series.
+     */
+    public static class Snapshot implements Iterable<Reading<Double>> {
+
+        private Snapshot(Buffer buffer, int length) {
+            this.buffer = buffer;
+            this.length = length;
+        }
+
+        /**
+         * Return the size of the snapshot.
+         *
+         * @return The size of the snapshot.
+         */
+        public int size() {
+            return this.length;
+        }
+
+        /**
+         * Return the datetime at a given position, as milliseconds since the
+         * epoch.
+         *
+         * @param i The position.
+         * @return Milliseconds since the epoch.
+         */
+        public long getEpochMillis(int i) {
+            checkIndex(i);
+            return this.buffer.datetimes[i];
+        }
+
+        /**
+         * Return the value at a given position.
+         *
+         * @param i The position.
+         * @return The value.
+         */
+        public double getDouble(int i) {
+            checkIndex(i);
+            return this.buffer.values[i];
+        }
+
+        /**
+         * Return a reading at a given position.
+         *
+         * @param i The position.
+         * @return A reading.
+         */
+        public Reading<Double> getReading(int i) {
+            checkIndex(i);
+            return new Reading<>(
+                    Instant.ofEpochMilli(this.buffer.datetimes[i]),
+                    this.buffer.values[i],
+                    Double.class);
+        }
+
+        /**
+         * Copy the snapshot to a regular time series.
+         *
+         * @return A time series.
+         */
+        public TimeSeries<Double> toTimeSeries() {
+            List<Instant> datetimes = new ArrayList<>(this.length);
+            List<Double> values = new ArrayList<>(this.length);
+            for (int i = 0; i < this.length; ++i) {
+                datetimes.add(Instant.ofEpochMilli(this.buffer.datetimes[i]));
+                values.add(this.buffer.values[i]);
+            }
+            return new TimeSeries<>(datetimes, values, Double.class);
+        }
+
+        /**
+         * Perform an operation on every reading of the snapshot, in order.
+         *
+         * @param action The operation.
+         */
+        public void forEach(LongDoubleConsumer action) {
+            for (int i = 0; i < this.length; ++i) {
+                action.accept(this.buffer.datetimes[i], this.buffer.values[i]);
+            }
+        }
+
+        /**
+         * Access the snapshot as a stream of readings.
+         *
+         * @return A stream of readings.
+         */
+        public Stream<Reading<Double>> stream() {
+            return StreamSupport.stream(this.spliterator(), true);
+        }
+
+        @Override
+        public Iterator<Reading<Double>> iterator() {
+            return new Iterator<Reading<Double>>() {
+                @Override
+                public boolean hasNext() {
+                    return i < length;
+                }
+
+                @Override
+                public Reading<Double> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Reading<Double> reading = getReading(i);
+                    i += 1;
+                    return reading;
+                }
+                int i = 0;
+            };
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            builder.append("[ ");
+            for (int i = 0; i < this.length; ++i) {
+                builder.append(Instant.ofEpochMilli(this.buffer.datetimes[i]));
+                builder.append(": ");
+                builder.append(this.buffer.values[i]);
+                builder.append(",\n  ");
+            }
+            builder.append("]");
+            return builder.toString();
+        }
+
+        private void checkIndex(int i) {
+            if (i < 0 || i >= this.length) {
+                throw new IndexOutOfBoundsException(
+                        "Index: " + i + ", Size: " + this.length);
+            }
+        }
+
+        private final Buffer buffer;
+        private final int length;
+    }
+
+    private static class Buffer {
+
+        Buffer(int capacity) {
+            this.datetimes = new long[capacity];
+            this.values = new double[capacity];
+        }
+
+        Buffer grow(int capacity) {
+            Buffer grown = new Buffer(capacity);
+            System.arraycopy(this.datetimes, 0, grown.datetimes, 0, this.datetimes.length);
+            System.arraycopy(this.values, 0, grown.values, 0, this.values.length);
+            return grown;
+        }
+
+        final long[] datetimes;
+        final double[] values;
+    }
+
+    private volatile Buffer buffer;
+    private volatile int length;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+}
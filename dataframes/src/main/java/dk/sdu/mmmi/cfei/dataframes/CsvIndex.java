@@ -0,0 +1,383 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * A sparse index of the rows of a CSV file sorted by datetime.
+ *
+ * Every given number of rows, the index records the byte offset of the row
+ * and its datetime, so that a time range can be loaded by seeking to the
+ * closest indexed row instead of parsing the whole file. The index can be
+ * stored in a sidecar file next to the CSV file and reused until the CSV file
+ * changes, i.e., its size or last modification time differ, or until it is
+ * opened with another time zone.
+ *
+ * The CSV file must have a header, the datetimes in the first column, sorted,
+ * and one row per line, i.e., no line break within quoted values.
+ *
+ * <pre>
+ * {@code
+ * CsvIndex index = CsvIndex.open(path, formatter, ZoneOffset.UTC, 1000);
+ * DataFrame week = DataFrame.fromCsv(path, index, formatter, ZoneOffset.UTC,
+ *         monday, sunday);
+ * }
+ * </pre>
+ *
+ * @author cgim
+ */
+public class CsvIndex {
+
+    private CsvIndex(long fileSize, long lastModified, ZoneId timezone,
+            int interval, String header, long[] offsets, long[] datetimes) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.timezone = timezone;
+        this.interval = interval;
+        this.header = header;
+        this.offsets = offsets;
+        this.datetimes = datetimes;
+    }
+
+    /**
+     * Build the index of a CSV file.
+     *
+     * @param file The CSV file.
+     * @param formatter The formatter for the datetimes, in the first column.
+     * @param timezone The time zone of the datetimes.
+     * @param interval The number of rows between two indexed rows.
+     * @return A new index.
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the interval is not positive, or the
+     * datetimes are not sorted
+     */
+    public static CsvIndex build(Path file, DateTimeFormatter formatter,
+            ZoneId timezone, int interval) throws IOException {
+        if (interval <= 0) {
+            throw new IllegalArgumentException(
+                    "Interval must be positive: " + interval);
+        }
+        long[] offsets = new long[16];
+        long[] datetimes = new long[16];
+        int count = 0;
+        String header = null;
+        final ByteArrayOutputStream field = new ByteArrayOutputStream();
+        // Line number, the header being line 0, and whether the current line
+        // is being captured, up to its first comma for rows.
+        long line = -1;
+        boolean atLineStart = true;
+        boolean capturing = false;
+        long lineStart = 0;
+        long size;
+        // Read before the content, so that a concurrent change makes the
+        // index look stale rather than up to date.
+        final long lastModified = Files.getLastModifiedTime(file).toMillis();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = 0;
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    final byte b = buffer.get();
+                    final boolean endOfLine = b == '\n' || b == '\r';
+                    if (atLineStart) {
+                        if (endOfLine) {
+                            position += 1;
+                            continue;
+                        }
+                        atLineStart = false;
+                        line += 1;
+                        lineStart = position;
+                        capturing = line == 0 || (line - 1) % interval == 0;
+                        field.reset();
+                    }
+                    if (capturing) {
+                        if (endOfLine || b == ',' && line > 0) {
+                            capturing = false;
+                            final String string = new String(
+                                    field.toByteArray(), StandardCharsets.UTF_8);
+                            if (line == 0) {
+                                header = string;
+                            } else {
+                                if (count == offsets.length) {
+                                    offsets = Arrays.copyOf(offsets, 2 * count);
+                                    datetimes = Arrays.copyOf(datetimes, 2 * count);
+                                }
+                                offsets[count] = lineStart;
+                                datetimes[count] = parse(string, formatter, timezone);
+                                if (count > 0 && datetimes[count] < datetimes[count - 1]) {
+                                    throw new IllegalArgumentException(
+                                            "Datetimes are not sorted at byte " + lineStart
+                                            + " of " + file);
+                                }
+                                count += 1;
+                            }
+                        } else {
+                            field.write(b);
+                        }
+                    }
+                    if (endOfLine) {
+                        atLineStart = true;
+                    }
+                    position += 1;
+                }
+                buffer.clear();
+            }
+        }
+        if (capturing) {
+            // The file ends without a line break.
+            final String string = new String(field.toByteArray(), StandardCharsets.UTF_8);
+            if (line == 0) {
+                header = string;
+            } else {
+                offsets = Arrays.copyOf(offsets, count + 1);
+                datetimes = Arrays.copyOf(datetimes, count + 1);
+                offsets[count] = lineStart;
+                datetimes[count] = parse(string, formatter, timezone);
+                count += 1;
+            }
+        }
+        if (header == null) {
+            throw new IllegalArgumentException("Missing header in " + file);
+        }
+        return new CsvIndex(size, lastModified, timezone, interval, header,
+                Arrays.copyOf(offsets, count), Arrays.copyOf(datetimes, count));
+    }
+
+    /**
+     * Read the index of a CSV file from its sidecar file if it is up to date,
+     * or build it and write the sidecar file otherwise.
+     *
+     * The sidecar file is up to date when it was built with the same
+     * interval and time zone, and the CSV file still has the same size and
+     * last modification time. Unreadable sidecar files, for instance from an
+     * older version, are rebuilt.
+     *
+     * @param file The CSV file.
+     * @param formatter The formatter for the datetimes, in the first column.
+     * @param timezone The time zone of the datetimes.
+     * @param interval The number of rows between two indexed rows.
+     * @return An index.
+     * @throws IOException if a file cannot be read or written
+     * @see #sidecarOf(Path)
+     */
+    public static CsvIndex open(Path file, DateTimeFormatter formatter,
+            ZoneId timezone, int interval) throws IOException {
+        final Path sidecar = sidecarOf(file);
+        if (Files.exists(sidecar)) {
+            CsvIndex index;
+            try {
+                index = read(sidecar);
+            } catch (IOException e) {
+                index = null;
+            }
+            if (index != null
+                    && index.fileSize == Files.size(file)
+                    && index.lastModified == Files.getLastModifiedTime(file).toMillis()
+                    && index.interval == interval
+                    && index.timezone.equals(timezone)) {
+                return index;
+            }
+        }
+        final CsvIndex index = build(file, formatter, timezone, interval);
+        index.write(sidecar);
+        return index;
+    }
+
+    /**
+     * Return the path of the sidecar file of a CSV file.
+     *
+     * @param file The CSV file.
+     * @return The path of the CSV file followed by ".idx".
+     */
+    public static Path sidecarOf(Path file) {
+        return file.resolveSibling(file.getFileName() + SIDECAR_EXTENSION);
+    }
+
+    /**
+     * Read an index from a file.
+     *
+     * @param path The index file.
+     * @return The index.
+     * @throws IOException if the file cannot be read or is not an index
+     */
+    public static CsvIndex read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a CSV index: " + path);
+            }
+            final long fileSize = in.readLong();
+            final long lastModified = in.readLong();
+            final ZoneId timezone = ZoneId.of(in.readUTF());
+            final int interval = in.readInt();
+            final String header = in.readUTF();
+            final int count = in.readInt();
+            final long[] offsets = new long[count];
+            final long[] datetimes = new long[count];
+            for (int i = 0; i < count; ++i) {
+                offsets[i] = in.readLong();
+                datetimes[i] = in.readLong();
+            }
+            return new CsvIndex(fileSize, lastModified, timezone, interval,
+                    header, offsets, datetimes);
+        }
+    }
+
+    /**
+     * Write the index to a file.
+     *
+     * @param path The index file.
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(this.fileSize);
+            out.writeLong(this.lastModified);
+            out.writeUTF(this.timezone.getId());
+            out.writeInt(this.interval);
+            out.writeUTF(this.header);
+            out.writeInt(this.offsets.length);
+            for (int i = 0; i < this.offsets.length; ++i) {
+                out.writeLong(this.offsets[i]);
+                out.writeLong(this.datetimes[i]);
+            }
+        }
+    }
+
+    /**
+     * Return the size of the indexed CSV file, in bytes.
+     *
+     * @return The size of the file.
+     */
+    public long getFileSize() {
+        return this.fileSize;
+    }
+
+    /**
+     * Return the last modification time of the indexed CSV file.
+     *
+     * @return The last modification time.
+     */
+    public Instant getLastModified() {
+        return Instant.ofEpochMilli(this.lastModified);
+    }
+
+    /**
+     * Return the time zone in which the datetimes were indexed.
+     *
+     * @return The time zone.
+     */
+    public ZoneId getTimezone() {
+        return this.timezone;
+    }
+
+    /**
+     * Return the number of rows between two indexed rows.
+     *
+     * @return The interval.
+     */
+    public int getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * Return the header line of the CSV file.
+     *
+     * @return The header.
+     */
+    public String getHeader() {
+        return this.header;
+    }
+
+    /**
+     * Return the number of indexed rows.
+     *
+     * @return The number of indexed rows.
+     */
+    public int size() {
+        return this.offsets.length;
+    }
+
+    /**
+     * Compute the region of the CSV file holding all the rows of a time range.
+     *
+     * The region starts and ends at indexed rows, so it may contain up to one
+     * interval of rows outside the range on each side.
+     *
+     * @param startTime The first datetime, or null for no limit.
+     * @param stopTime The last datetime, or null for no limit.
+     * @return The first (inclusive) and last (exclusive) byte offsets.
+     */
+    long[] locate(Instant startTime, Instant stopTime) {
+        final int n = this.offsets.length;
+        if (n == 0) {
+            return new long[]{this.fileSize, this.fileSize};
+        }
+        long from = this.offsets[0];
+        if (startTime != null) {
+            // Rows before the first indexed row at or after the start may
+            // still be in the range, so start from the previous one.
+            final int k = RollupIndex.lowerBound(this.datetimes, n, startTime.toEpochMilli());
+            from = this.offsets[Math.max(k - 1, 0)];
+        }
+        long to = this.fileSize;
+        if (stopTime != null) {
+            final int k = RollupIndex.lowerBound(this.datetimes, n, stopTime.toEpochMilli() + 1);
+            if (k < n) {
+                to = this.offsets[k];
+            }
+        }
+        return new long[]{from, Math.max(from, to)};
+    }
+
+    @Override
+    public String toString() {
+        return "CsvIndex{"
+                + "fileSize=" + this.fileSize
+                + ", timezone=" + this.timezone
+                + ", interval=" + this.interval
+                + ", size=" + this.offsets.length + '}';
+    }
+
+    private static long parse(String string, DateTimeFormatter formatter, ZoneId timezone) {
+        String datetime = string.trim();
+        if (datetime.length() >= 2 && datetime.startsWith("\"") && datetime.endsWith("\"")) {
+            datetime = datetime.substring(1, datetime.length() - 1);
+        }
+        return LocalDateTime.parse(datetime, formatter)
+                .atZone(timezone).toInstant().toEpochMilli();
+    }
+
+    private final long fileSize;
+    private final long lastModified;
+    private final ZoneId timezone;
+    private final int interval;
+    private final String header;
+    private final long[] offsets;
+    private final long[] datetimes;
+
+    private static final int MAGIC = 0x43535649;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String SIDECAR_EXTENSION = ".idx";
+}
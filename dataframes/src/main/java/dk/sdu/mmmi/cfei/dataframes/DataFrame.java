@@ -1,19 +1,45 @@
 package dk.sdu.mmmi.cfei.dataframes;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.DoublePredicate;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -49,13 +75,15 @@ public class DataFrame implements Iterable<MultipleReading> {
     public DataFrame(List<Instant> datetimes) {
         this.datetimes = new ArrayList<>(datetimes);
         this.columns = new ArrayList<>();
-        this.data = new HashMap<>();
+        this.values = new ArrayList<>();
+        this.ordinals = new HashMap<>();
     }
 
     /**
      * Return the column of the data frame.
      *
      * @return A list of columns.
+     * @see #getColumnsView()
      */
     public List<Measure> getColumns() {
         return new ArrayList<>(this.columns);
@@ -66,9 +94,120 @@ public class DataFrame implements Iterable<MultipleReading> {
      *
      * @param measure The column.
      * @return A time series..
+     * @see #getColumnView(Measure)
      */
     public TimeSeries<Number> getColumn(Measure measure) {
-        return new TimeSeries(datetimes, this.data.get(measure), measure.type);
+        return new TimeSeries<>(datetimes, this.numbersOf(measure), numberType(measure));
+    }
+
+    /**
+     * Access the columns of the data frame without copying them.
+     *
+     * @return A read-only list of columns, reflecting later changes.
+     */
+    public List<Measure> getColumnsView() {
+        return Collections.unmodifiableList(this.columns);
+    }
+
+    /**
+     * Access the values for a given column without copying them.
+     *
+     * The time series shares the datetimes and values of the data frame, so
+     * it reflects later changes to the data frame and cannot be modified. Use
+     * {@link TimeSeries#copy()} to obtain an independent time series.
+     *
+     * @param measure The column.
+     * @return A read-only time series.
+     * @throws IllegalArgumentException if the column does not exist
+     */
+    public TimeSeries<Number> getColumnView(Measure measure) {
+        final List<Number> values = this.numbersOf(measure);
+        if (values == null) {
+            throw new IllegalArgumentException(
+                    MessageFormat.format("Unknown column: {0}", measure));
+        }
+        return TimeSeries.view(this.datetimes, values, numberType(measure));
+    }
+
+    /**
+     * Return the ordinal of a column, i.e., its position in the list of
+     * columns.
+     *
+     * Ordinals allow accessing cells without looking up columns by measure,
+     * which requires hashing.
+     *
+     * @param measure The column.
+     * @return The ordinal of the column, or -1 if the column does not exist.
+     */
+    public int columnIndex(Measure measure) {
+        final Integer ordinal = this.ordinals.get(measure);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Return the value of a cell.
+     *
+     * @param column The ordinal of the column.
+     * @param row The row index.
+     * @return The value.
+     * @see #columnIndex(Measure)
+     */
+    public Object getValue(int column, int row) {
+        return this.values.get(column).get(row);
+    }
+
+    /**
+     * Return the value of a cell as a double.
+     *
+     * @param column The ordinal of the column.
+     * @param row The row index.
+     * @return The value, or NaN if it is missing.
+     * @see #columnIndex(Measure)
+     */
+    public double getDouble(int column, int row) {
+        return ValidityMask.toDouble((Number) this.values.get(column).get(row));
+    }
+
+    /**
+     * Copy the data frame.
+     *
+     * @return A new data frame, independent of this one.
+     */
+    public DataFrame copy() {
+        DataFrame result = new DataFrame(this.datetimes);
+        for (Measure column : this.columns) {
+            result.addColumn(column, this.valuesOf(column));
+        }
+        return result;
+    }
+
+    /**
+     * Return the values for a given column as an array of doubles.
+     *
+     * @param measure The column.
+     * @return A new array of values.
+     */
+    public double[] getDoubleColumn(Measure measure) {
+        List<Number> column = this.numbersOf(measure);
+        final int n = column.size();
+        final double[] result = new double[n];
+        for (int i = 0; i < n; ++i) {
+            result[i] = ValidityMask.toDouble(column.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Compute which values of a column are valid, i.e., neither null nor NaN.
+     *
+     * The mask is computed on demand in one pass over the column and is not
+     * updated when the column changes.
+     *
+     * @param measure The column.
+     * @return A validity mask.
+     */
+    public ValidityMask validity(Measure measure) {
+        return ValidityMask.of(this.valuesOf(measure));
     }
 
     /**
@@ -79,18 +218,17 @@ public class DataFrame implements Iterable<MultipleReading> {
      * @param <T> The value type.
      * @param measure The column.
      * @param that The other time series.
-     * @param skipNaNs Skip NaN values.
+     * @param skipNaNs Skip missing values, i.e., null or NaN.
      */
     public <T extends Number> void set(Measure measure, TimeSeries<T> that, boolean skipNaNs) {
-        List<Number> values = this.data.get(measure);
+        List<Number> values = this.numbersOf(measure);
         for (int i = 0; i < that.size(); ++i) {
-            int j = this.datetimes.indexOf(that.getReading(i).getDatetime());
-            T value = that.getReading(i).getValue();
-            if (skipNaNs && value instanceof Double && ((Double) value).isNaN()) {
-                // Skip
-            } else {
-                values.set(j, value);
+            final T value = that.getValues().get(i);
+            if (skipNaNs && ValidityMask.isMissing(value)) {
+                continue;
             }
+            int j = this.datetimes.indexOf(that.getDatetimes().get(i));
+            values.set(j, value);
         }
     }
 
@@ -106,11 +244,11 @@ public class DataFrame implements Iterable<MultipleReading> {
      * @param that The other time series.
      */
     public <T extends Number> void setContiguous(Measure measure, TimeSeries<T> that) {
-        List<Number> values = this.data.get(measure);
-        final int offset = this.datetimes.indexOf(that.getReading(0).getDatetime());
+        List<Number> values = this.numbersOf(measure);
+        final int offset = this.datetimes.indexOf(that.getDatetimes().get(0));
         for (int i = 0; i < that.size(); ++i) {
-            assert this.datetimes.get(i + offset).equals(that.getReading(i).getDatetime());
-            values.set(i + offset, that.getReading(i).getValue());
+            assert this.datetimes.get(i + offset).equals(that.getDatetimes().get(i));
+            values.set(i + offset, that.getValues().get(i));
         }
     }
 
@@ -130,10 +268,11 @@ public class DataFrame implements Iterable<MultipleReading> {
      * @return A multiple reading.
      */
     public MultipleReading getRow(int i) {
-        List values = columns.stream()
-                .map(col -> data.get(col).get(i))
-                .collect(Collectors.toList());
-        return new MultipleReading(datetimes.get(i), values);
+        List<Object> row = new ArrayList<>(this.values.size());
+        for (List<?> column : this.values) {
+            row.add(column.get(i));
+        }
+        return new MultipleReading(datetimes.get(i), row);
     }
 
     /**
@@ -142,11 +281,7 @@ public class DataFrame implements Iterable<MultipleReading> {
      * @return A multiple reading.
      */
     public MultipleReading getLastRow() {
-        final int index = this.size() - 1;
-        List values = columns.stream()
-                .map(col -> data.get(col).get(index))
-                .collect(Collectors.toList());
-        return new MultipleReading(datetimes.get(index), values);
+        return getRow(this.size() - 1);
     }
 
     /**
@@ -156,10 +291,780 @@ public class DataFrame implements Iterable<MultipleReading> {
      * @param column The new column values.
      */
     public void addColumn(Measure measure, List column) {
-        if (!this.columns.contains(measure)) {
-            this.columns.add(measure);
+        putColumn(measure, column instanceof CategoricalColumn
+                ? ((CategoricalColumn) column).copy()
+                : new ArrayList<>(column));
+    }
+
+    /**
+     * Add a new column of strings, stored as a categorical column.
+     *
+     * @param measure The new column.
+     * @param column The new column values.
+     * @see CategoricalColumn
+     */
+    public void addCategoricalColumn(Measure measure, List<String> column) {
+        putColumn(measure, CategoricalColumn.of(column));
+    }
+
+    /**
+     * Return the values for a given column as a categorical column.
+     *
+     * Columns that are not stored as categorical columns are encoded from the
+     * string representations of their values.
+     *
+     * @param measure The column.
+     * @return A new categorical column.
+     * @throws IllegalArgumentException if the column does not exist
+     */
+    public CategoricalColumn getCategoricalColumn(Measure measure) {
+        final List<?> column = this.valuesOf(measure);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown column: " + measure);
+        }
+        if (column instanceof CategoricalColumn) {
+            return ((CategoricalColumn) column).copy();
+        }
+        CategoricalColumn result = new CategoricalColumn(column.size());
+        for (Object value : column) {
+            result.add(value == null ? null : value.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Select the rows where a column equals a given value.
+     *
+     * @param measure The column.
+     * @param value The value, or null for missing values.
+     * @return A new data frame holding the selected rows.
+     * @throws IllegalArgumentException if the column does not exist
+     * @see #where(Measure, String)
+     */
+    public DataFrame filter(Measure measure, String value) {
+        return where(measure, value).materialize();
+    }
+
+    /**
+     * Select the rows where a column equals a given value, without copying.
+     *
+     * On a categorical column, rows are compared by code.
+     *
+     * @param measure The column.
+     * @param value The value, or null for missing values.
+     * @return A selection of rows of this data frame.
+     * @throws IllegalArgumentException if the column does not exist
+     */
+    public Selection where(Measure measure, String value) {
+        final List<?> column = this.valuesOf(measure);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown column: " + measure);
+        }
+        final CategoricalColumn categories = column instanceof CategoricalColumn
+                ? (CategoricalColumn) column
+                : getCategoricalColumn(measure);
+        return new Selection(this, categories.equalTo(value));
+    }
+
+    /**
+     * Select the rows where the values of a column satisfy a predicate,
+     * without copying.
+     *
+     * Values are tested as primitive doubles, missing values being NaN.
+     *
+     * <pre>
+     * {@code
+     * Selection heating = dataFrame.where(supplyTemp, t -> t > 40.0)
+     *         .where(flow, f -> f > 0.0);
+     * Map<Measure, SummaryStatistics> statistics = heating.describe();
+     * }
+     * </pre>
+     *
+     * @param measure The column.
+     * @param predicate The predicate.
+     * @return A selection of rows of this data frame.
+     * @throws IllegalArgumentException if the column does not exist
+     */
+    public Selection where(Measure measure, DoublePredicate predicate) {
+        return selectAll().where(measure, predicate);
+    }
+
+    /**
+     * Select all the rows.
+     *
+     * @return A selection of every row of this data frame.
+     */
+    public Selection selectAll() {
+        final BitSet rows = new BitSet(this.size());
+        rows.set(0, this.size());
+        return new Selection(this, rows);
+    }
+
+    /**
+     * Group the rows by the values of a column and aggregate every numeric
+     * column.
+     *
+     * Rows are grouped by the codes of the categorical column, and rows
+     * where the column is missing are ignored. NaN values are ignored.
+     *
+     * @param measure The column to group by.
+     * @param aggregation The aggregation to compute.
+     * @return The aggregated values of every numeric column, per value of the
+     * grouping column, in order of first appearance.
+     * @throws IllegalArgumentException if the column does not exist
+     */
+    public Map<String, Map<Measure, Double>> groupBy(Measure measure, Aggregation aggregation) {
+        return groupBy(null, measure, aggregation);
+    }
+
+    Map<String, Map<Measure, Double>> groupBy(
+            BitSet rows, Measure measure, Aggregation aggregation) {
+        final List<?> column = this.valuesOf(measure);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown column: " + measure);
+        }
+        final CategoricalColumn categories = column instanceof CategoricalColumn
+                ? (CategoricalColumn) column
+                : getCategoricalColumn(measure);
+        final List<Measure> numeric = this.numericColumns();
+        final int groups = categories.cardinality();
+        GroupAccumulator accumulator = new GroupAccumulator(numeric.size(), groups);
+        for (int c = 0; c < numeric.size(); ++c) {
+            final double[] values = this.getDoubleColumn(numeric.get(c));
+            for (int i = nextRow(rows, 0); i >= 0 && i < values.length; i = nextRow(rows, i + 1)) {
+                final int code = categories.getCode(i);
+                if (code >= 0) {
+                    accumulator.accept(c, code, values[i]);
+                }
+            }
+        }
+
+        Map<String, Map<Measure, Double>> result = new LinkedHashMap<>();
+        for (String category : categories.getDictionary()) {
+            result.put(category, new LinkedHashMap<>());
+        }
+        for (int c = 0; c < numeric.size(); ++c) {
+            final double[] aggregated = accumulator.finish(c, aggregation);
+            for (int g = 0; g < groups; ++g) {
+                result.get(categories.getDictionary().get(g))
+                        .put(numeric.get(c), aggregated[g]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add a new column of doubles.
+     *
+     * @param measure The new column.
+     * @param column The new column values.
+     */
+    public void addColumn(Measure measure, double[] column) {
+        List<Double> list = new ArrayList<>(column.length);
+        for (double value : column) {
+            list.add(value);
+        }
+        putColumn(measure, list);
+    }
+
+    /**
+     * Compute a new column by applying an operator element-wise between two
+     * columns.
+     *
+     * <pre>
+     * {@code
+     * dataFrame.compute(
+     *         new Measure("deltaTemp", Double.class),
+     *         supplyTemp, ArithmeticOperator.SUBTRACT, returnTemp);
+     * }
+     * </pre>
+     *
+     * @param result The new column.
+     * @param left The left operand column.
+     * @param operator The operator.
+     * @param right The right operand column.
+     */
+    public void compute(Measure result, Measure left, ArithmeticOperator operator, Measure right) {
+        final double[] values = this.getDoubleColumn(left);
+        operator.apply(values, this.getDoubleColumn(right), values);
+        this.addColumn(result, values);
+    }
+
+    /**
+     * Compute a new column by applying an operator element-wise between a
+     * column and a scalar.
+     *
+     * @param result The new column.
+     * @param left The left operand column.
+     * @param operator The operator.
+     * @param right The right operand.
+     */
+    public void compute(Measure result, Measure left, ArithmeticOperator operator, double right) {
+        final double[] values = this.getDoubleColumn(left);
+        operator.apply(values, right, values);
+        this.addColumn(result, values);
+    }
+
+    /**
+     * Add a new column computed from an expression over other columns.
+     *
+     * <pre>
+     * {@code
+     * dataFrame.derive("deltaTemp", "supplyTemp - returnTemp");
+     * }
+     * </pre>
+     *
+     * @param name The name of the new column.
+     * @param expression The expression.
+     * @throws IllegalArgumentException if the expression is not valid or
+     * references an unknown column
+     * @see Expression
+     */
+    public void derive(String name, String expression) {
+        Map<String, String> expressions = new LinkedHashMap<>();
+        expressions.put(name, expression);
+        derive(expressions);
+    }
+
+    /**
+     * Add several new columns computed from expressions over other columns.
+     *
+     * All expressions are evaluated together in a single pass over the rows.
+     * An expression can reference columns derived by the preceding ones.
+     *
+     * @param expressions Expressions by name of the new column, in order of
+     * evaluation.
+     * @throws IllegalArgumentException if an expression is not valid or
+     * references an unknown column
+     * @see Expression
+     */
+    public void derive(Map<String, String> expressions) {
+        derive(expressions, null);
+    }
+
+    void derive(Map<String, String> expressions, BitSet rows) {
+        final int n = this.size();
+        Map<String, double[]> bindings = new HashMap<>();
+        List<Expression.Evaluator> evaluators = new ArrayList<>();
+        List<double[]> results = new ArrayList<>();
+        for (Map.Entry<String, String> entry : expressions.entrySet()) {
+            Expression expression = Expression.parse(entry.getValue());
+            for (String columnName : expression.getColumnNames()) {
+                if (!bindings.containsKey(columnName)) {
+                    this.columns.stream()
+                            .filter(column -> column.name.equals(columnName))
+                            .findFirst()
+                            .ifPresent(column -> bindings.put(columnName, getDoubleColumn(column)));
+                }
+            }
+            evaluators.add(expression.compile(bindings));
+            final double[] result = new double[n];
+            results.add(result);
+            bindings.put(entry.getKey(), result);
+        }
+
+        final double[] block = new double[Expression.BLOCK_SIZE];
+        for (int offset = 0; offset < n; offset += Expression.BLOCK_SIZE) {
+            final int length = Math.min(Expression.BLOCK_SIZE, n - offset);
+            final int first = nextRow(rows, offset);
+            if (first < 0 || first >= offset + length) {
+                continue;
+            }
+            for (int j = 0; j < evaluators.size(); ++j) {
+                evaluators.get(j).evaluate(offset, length, block);
+                System.arraycopy(block, 0, results.get(j), offset, length);
+            }
+        }
+        if (rows != null) {
+            for (double[] result : results) {
+                for (int i = rows.nextClearBit(0); i < n; i = rows.nextClearBit(i + 1)) {
+                    result[i] = Double.NaN;
+                }
+            }
+        }
+
+        int j = 0;
+        for (String name : expressions.keySet()) {
+            this.addColumn(new Measure(name, Double.class), results.get(j));
+            j += 1;
+        }
+    }
+
+    /**
+     * Group the rows by a calendar key in UTC and aggregate every numeric
+     * column.
+     *
+     * @param key The calendar key.
+     * @param aggregations The aggregations to compute.
+     * @return The aggregated values per key.
+     * @see #groupBy(CalendarKey, ZoneId, Aggregation...)
+     */
+    public CalendarProfile groupBy(CalendarKey key, Aggregation... aggregations) {
+        return groupBy(key, ZoneOffset.UTC, aggregations);
+    }
+
+    /**
+     * Group the rows by a calendar key and aggregate every numeric column.
+     *
+     * For instance, grouping by {@link CalendarKey#HOUR_OF_DAY} with
+     * {@link Aggregation#MEAN} computes the mean daily profile. NaN values
+     * are ignored.
+     *
+     * Calendar periods are computed once per period rather than once per
+     * row, and large data frames are processed in parallel chunks.
+     *
+     * @param key The calendar key.
+     * @param zone The time zone where the key is computed.
+     * @param aggregations The aggregations to compute.
+     * @return The aggregated values per key.
+     */
+    public CalendarProfile groupBy(CalendarKey key, ZoneId zone, Aggregation... aggregations) {
+        return groupBy(null, key, zone, aggregations);
+    }
+
+    CalendarProfile groupBy(
+            BitSet rows, CalendarKey key, ZoneId zone, Aggregation... aggregations) {
+        final int n = this.size();
+        final long[] epochMillis = this.getEpochMillis();
+        final List<Measure> numeric = this.numericColumns();
+        final double[][] values = numeric.stream()
+                .map(this::getDoubleColumn)
+                .toArray(double[][]::new);
+
+        GroupAccumulator accumulator = inParallelChunks(n,
+                (from, to) -> {
+                    GroupAccumulator partial
+                            = new GroupAccumulator(values.length, key.size());
+                    CalendarPeriods.Cursor cursor
+                            = new CalendarPeriods.Cursor(zone, key.getPeriod());
+                    int group = 0;
+                    for (int i = nextRow(rows, from); i >= 0 && i < to; i = nextRow(rows, i + 1)) {
+                        if (cursor.moveTo(epochMillis[i])) {
+                            group = key.keyOf(cursor.getPeriod());
+                        }
+                        for (int c = 0; c < values.length; ++c) {
+                            partial.accept(c, group, values[c][i]);
+                        }
+                    }
+                    return partial;
+                },
+                GroupAccumulator::merge);
+
+        double[][][] result = new double[values.length][aggregations.length][];
+        for (int c = 0; c < values.length; ++c) {
+            for (int a = 0; a < aggregations.length; ++a) {
+                result[c][a] = accumulator.finish(c, aggregations[a]);
+            }
+        }
+        return new CalendarProfile(
+                key, zone, numeric, Arrays.asList(aggregations), result);
+    }
+
+    /**
+     * Aggregate every numeric column over consecutive calendar periods.
+     *
+     * Periods are computed in the given time zone, so a day lasts 23 or 25
+     * hours across daylight saving time transitions, and months and years
+     * have their calendar lengths. The result is indexed by the start of
+     * every period between the first and the last rows, including empty
+     * periods. Columns are converted to doubles and NaN values are ignored;
+     * non-numeric columns are left out.
+     *
+     * Period boundaries are computed once per period, then the rows are
+     * scanned in parallel chunks comparing plain milliseconds. The rows must
+     * be sorted by datetime.
+     *
+     * <pre>
+     * {@code
+     * DataFrame daily = dataFrame.resample(
+     *         ChronoUnit.DAYS, ZoneId.of("Europe/Copenhagen"), Aggregation.SUM);
+     * }
+     * </pre>
+     *
+     * @param unit The period unit, among minutes, hours, days, weeks, months
+     * and years.
+     * @param zone The time zone of the periods.
+     * @param aggregation The aggregation.
+     * @return A new data frame.
+     * @throws IllegalArgumentException if the unit is not supported, or if
+     * the rows are not sorted by datetime
+     * @see #sortByTime()
+     */
+    public DataFrame resample(ChronoUnit unit, ZoneId zone, Aggregation aggregation) {
+        final int n = this.size();
+        final List<Measure> numeric = this.numericColumns();
+        if (n == 0) {
+            DataFrame result = new DataFrame(this.datetimes);
+            for (Measure column : numeric) {
+                result.addColumn(
+                        new Measure(column.name, Double.class, column.metadata),
+                        new double[0]);
+            }
+            return result;
+        }
+        final long[] epochMillis = Interpolator.toEpochMillis(this.datetimes);
+        final long[] boundaries = CalendarPeriods.boundaries(
+                epochMillis[0], epochMillis[n - 1], zone, unit);
+        final int periods = boundaries.length - 1;
+        final double[][] values = numeric.stream()
+                .map(this::getDoubleColumn)
+                .toArray(double[][]::new);
+
+        GroupAccumulator accumulator = inParallelChunks(n,
+                (from, to) -> {
+                    GroupAccumulator partial
+                            = new GroupAccumulator(values.length, periods);
+                    int period = Arrays.binarySearch(
+                            boundaries, 0, periods, epochMillis[from]);
+                    if (period < 0) {
+                        period = -period - 2;
+                    }
+                    for (int i = from; i < to; ++i) {
+                        while (epochMillis[i] >= boundaries[period + 1]) {
+                            period += 1;
+                        }
+                        for (int c = 0; c < values.length; ++c) {
+                            partial.accept(c, period, values[c][i]);
+                        }
+                    }
+                    return partial;
+                },
+                GroupAccumulator::merge);
+
+        List<Instant> starts = new ArrayList<>(periods);
+        for (int p = 0; p < periods; ++p) {
+            starts.add(Instant.ofEpochMilli(boundaries[p]));
+        }
+        DataFrame result = new DataFrame(starts);
+        for (int c = 0; c < values.length; ++c) {
+            final Measure column = numeric.get(c);
+            result.addColumn(
+                    new Measure(column.name, Double.class, column.metadata),
+                    accumulator.finish(c, aggregation));
+        }
+        return result;
+    }
+
+    /**
+     * Reduce the number of readings of every numeric column for
+     * visualization.
+     *
+     * Each column is downsampled independently, since the readings selected
+     * depend on the values, and the columns are processed in parallel.
+     *
+     * @param threshold The maximal number of readings to keep per column.
+     * @param method The downsampling method.
+     * @return The downsampled time series by column, in column order.
+     * @see TimeSeries#downsample(int, Downsampling)
+     */
+    public Map<Measure, TimeSeries<Number>> downsample(int threshold, Downsampling method) {
+        final long[] epochMillis = this.getEpochMillis();
+        final List<Measure> numeric = this.numericColumns();
+        final List<TimeSeries<Number>> downsampled = numeric.parallelStream()
+                .map(column -> TimeSeries.select(this.datetimes,
+                        this.numbersOf(column),
+                        method.select(epochMillis, this.getDoubleColumn(column), threshold),
+                        numberType(column)))
+                .collect(Collectors.toList());
+
+        Map<Measure, TimeSeries<Number>> result = new LinkedHashMap<>();
+        for (int c = 0; c < numeric.size(); ++c) {
+            result.put(numeric.get(c), downsampled.get(c));
+        }
+        return result;
+    }
+
+    /**
+     * Compute the summary statistics of every numeric column.
+     *
+     * All columns are summarized in a single pass over the rows; large data
+     * frames are processed in parallel chunks whose statistics are then
+     * merged.
+     *
+     * @return The summary statistics by column, in column order.
+     */
+    public Map<Measure, SummaryStatistics> describe() {
+        return describe(null);
+    }
+
+    Map<Measure, SummaryStatistics> describe(BitSet rows) {
+        final int n = this.size();
+        final List<Measure> numeric = this.numericColumns();
+        final double[][] values = numeric.stream()
+                .map(this::getDoubleColumn)
+                .toArray(double[][]::new);
+
+        SummaryStatistics[] statistics = inParallelChunks(n,
+                (from, to) -> {
+                    SummaryStatistics[] partial = new SummaryStatistics[values.length];
+                    for (int c = 0; c < values.length; ++c) {
+                        partial[c] = new SummaryStatistics();
+                        for (int i = nextRow(rows, from); i >= 0 && i < to; i = nextRow(rows, i + 1)) {
+                            partial[c].accept(values[c][i]);
+                        }
+                    }
+                    return partial;
+                },
+                (a, b) -> {
+                    for (int c = 0; c < a.length; ++c) {
+                        a[c].merge(b[c]);
+                    }
+                    return a;
+                });
+
+        Map<Measure, SummaryStatistics> result = new LinkedHashMap<>();
+        for (int c = 0; c < values.length; ++c) {
+            result.put(numeric.get(c), statistics[c]);
+        }
+        return result;
+    }
+
+    /**
+     * Build a quantile sketch of every numeric column.
+     *
+     * All columns are sketched in a single pass over the rows; large data
+     * frames are processed in parallel chunks whose sketches are then merged.
+     *
+     * @param k The accuracy parameter of the sketches.
+     * @return The quantile sketches by column, in column order.
+     * @see QuantileSketch
+     */
+    public Map<Measure, QuantileSketch> quantileSketches(int k) {
+        final int n = this.size();
+        final List<Measure> numeric = this.numericColumns();
+        final double[][] values = numeric.stream()
+                .map(this::getDoubleColumn)
+                .toArray(double[][]::new);
+
+        QuantileSketch[] sketches = inParallelChunks(n,
+                (from, to) -> {
+                    QuantileSketch[] partial = new QuantileSketch[values.length];
+                    for (int c = 0; c < values.length; ++c) {
+                        partial[c] = new QuantileSketch(k);
+                        for (int i = from; i < to; ++i) {
+                            partial[c].accept(values[c][i]);
+                        }
+                    }
+                    return partial;
+                },
+                (a, b) -> {
+                    for (int c = 0; c < a.length; ++c) {
+                        a[c].merge(b[c]);
+                    }
+                    return a;
+                });
+
+        Map<Measure, QuantileSketch> result = new LinkedHashMap<>();
+        for (int c = 0; c < values.length; ++c) {
+            result.put(numeric.get(c), sketches[c]);
+        }
+        return result;
+    }
+
+    /**
+     * Estimate quantiles of every numeric column.
+     *
+     * NaN values are ignored.
+     *
+     * @param qs The quantiles, between 0 and 1.
+     * @return The estimated values by column, in column order.
+     * @see #quantileSketches(int)
+     */
+    public Map<Measure, double[]> quantiles(double... qs) {
+        Map<Measure, double[]> result = new LinkedHashMap<>();
+        quantileSketches(QuantileSketch.DEFAULT_K).forEach((measure, sketch) -> {
+            result.put(measure, sketch.quantiles(qs));
+        });
+        return result;
+    }
+
+    /**
+     * Replace every missing value with the last valid value before it, in
+     * every column.
+     *
+     * Missing values before the first valid one are left unchanged.
+     *
+     * @return A new data frame.
+     */
+    public DataFrame fillForward() {
+        DataFrame result = new DataFrame(this.datetimes);
+        for (Measure column : this.columns) {
+            final List<?> values = this.valuesOf(column);
+            result.addColumn(column, ValidityMask.of(values).fillForward(values));
         }
-        this.data.put(measure, new ArrayList<>(column));
+        return result;
+    }
+
+    /**
+     * Replace every missing value with the first valid value after it, in
+     * every column.
+     *
+     * Missing values after the last valid one are left unchanged.
+     *
+     * @return A new data frame.
+     */
+    public DataFrame fillBackward() {
+        DataFrame result = new DataFrame(this.datetimes);
+        for (Measure column : this.columns) {
+            final List<?> values = this.valuesOf(column);
+            result.addColumn(column, ValidityMask.of(values).fillBackward(values));
+        }
+        return result;
+    }
+
+    /**
+     * Replace every missing value with a linear interpolation in time between
+     * the surrounding valid values, in every numeric column.
+     *
+     * Interpolated columns are converted to doubles. Missing values before
+     * the first valid one and after the last valid one are set to NaN.
+     * Non-numeric columns are copied unchanged.
+     *
+     * @return A new data frame.
+     */
+    public DataFrame interpolateGaps() {
+        final long[] epochMillis = this.getEpochMillis();
+        DataFrame result = new DataFrame(this.datetimes);
+        for (Measure column : this.columns) {
+            if (!Number.class.isAssignableFrom(column.type)) {
+                result.addColumn(column, this.valuesOf(column));
+                continue;
+            }
+            final double[] values = this.getDoubleColumn(column);
+            result.addColumn(
+                    new Measure(column.name, Double.class, column.metadata),
+                    ValidityMask.of(values).interpolate(epochMillis, values));
+        }
+        return result;
+    }
+
+    /**
+     * Interpolate every column on a regular grid spanning the data frame.
+     *
+     * @param step The step of the grid.
+     * @param method The interpolation method.
+     * @return A new data frame.
+     * @see #fillGaps(Instant, Instant, Duration, Interpolation, Duration)
+     */
+    public DataFrame fillGaps(Duration step, Interpolation method) {
+        return fillGaps(step, method, null);
+    }
+
+    /**
+     * Interpolate every column on a regular grid spanning the data frame.
+     *
+     * @param step The step of the grid.
+     * @param method The interpolation method.
+     * @param maxGap The maximal duration between two valid readings to
+     * interpolate between them, or null for no limit.
+     * @return A new data frame.
+     * @see #fillGaps(Instant, Instant, Duration, Interpolation, Duration)
+     */
+    public DataFrame fillGaps(
+            Duration step, Interpolation method, Duration maxGap) {
+        final long[] grid = this.datetimes.isEmpty()
+                ? new long[0]
+                : Interpolator.grid(this.datetimes.get(0).toEpochMilli(),
+                        this.datetimes.get(this.datetimes.size() - 1).toEpochMilli(),
+                        step.toMillis());
+        return interpolate(Interpolator.toInstants(grid), grid, method, maxGap);
+    }
+
+    /**
+     * Interpolate every column on a regular grid.
+     *
+     * Each column is interpolated independently over its own valid values, and
+     * converted to doubles. Grid datetimes before the first valid value of a
+     * column, after its last one, or between two valid values further apart
+     * than the maximal gap are set to NaN. Non-numeric columns, such as string
+     * or categorical columns, hold the value of the last row at or before each
+     * grid datetime, and are null before the first row.
+     *
+     * @param startTime The first datetime of the grid.
+     * @param stopTime The last datetime of the grid (inclusive).
+     * @param step The step of the grid.
+     * @param method The interpolation method.
+     * @param maxGap The maximal duration between two valid readings to
+     * interpolate between them, or null for no limit.
+     * @return A new data frame.
+     */
+    public DataFrame fillGaps(Instant startTime, Instant stopTime,
+            Duration step, Interpolation method, Duration maxGap) {
+        final long[] grid = Interpolator.grid(
+                startTime.toEpochMilli(), stopTime.toEpochMilli(), step.toMillis());
+        return interpolate(Interpolator.toInstants(grid), grid, method, maxGap);
+    }
+
+    /**
+     * Interpolate every column linearly at the datetimes of another data frame
+     * or time series.
+     *
+     * @param target The sorted datetimes to interpolate at.
+     * @return A new data frame.
+     * @see #resampleTo(List, Interpolation)
+     */
+    public DataFrame resampleTo(List<Instant> target) {
+        return resampleTo(target, Interpolation.LINEAR);
+    }
+
+    /**
+     * Interpolate every column at arbitrary datetimes.
+     *
+     * The target datetimes may be irregular, and are merged with the index of
+     * the data frame in a single scan per column. Each column is interpolated
+     * independently over its own valid values, and converted to doubles.
+     * Target datetimes before the first valid value of a column or after its
+     * last one are set to NaN. Non-numeric columns, such as string or
+     * categorical columns, hold the value of the last row at or before each
+     * target datetime, and are null before the first row.
+     *
+     * <pre>
+     * {@code
+     * DataFrame aligned = weather.resampleTo(building.getColumn(power).getDatetimes());
+     * }
+     * </pre>
+     *
+     * @param target The sorted datetimes to interpolate at.
+     * @param method The interpolation method.
+     * @return A new data frame.
+     * @throws IllegalArgumentException if the target datetimes are not sorted
+     */
+    public DataFrame resampleTo(List<Instant> target, Interpolation method) {
+        return interpolate(target, Interpolator.toEpochMillis(target), method, null);
+    }
+
+    private DataFrame interpolate(List<Instant> target, long[] targetMillis,
+            Interpolation method, Duration maxGap) {
+        final long[] epochMillis = this.getEpochMillis();
+        final long maxGapMillis = maxGap == null ? -1 : maxGap.toMillis();
+        DataFrame result = new DataFrame(target);
+        for (int c = 0; c < this.columns.size(); ++c) {
+            final Measure column = this.columns.get(c);
+            if (!Number.class.isAssignableFrom(column.type)) {
+                result.putColumn(column, holdPrevious(
+                        epochMillis, this.values.get(c), targetMillis));
+                continue;
+            }
+            final Interpolator interpolator = new Interpolator(
+                    epochMillis, this.getDoubleColumn(column), method, maxGapMillis);
+            result.addColumn(
+                    new Measure(column.name, Double.class, column.metadata),
+                    interpolator.evaluate(targetMillis));
+        }
+        return result;
+    }
+
+    private static <T> List<T> holdPrevious(
+            long[] epochMillis, List<T> values, long[] targetMillis) {
+        List<T> result = emptyLike(values, targetMillis.length);
+        int row = -1;
+        for (long t : targetMillis) {
+            while (row + 1 < epochMillis.length && epochMillis[row + 1] <= t) {
+                row += 1;
+            }
+            result.add(row < 0 ? null : values.get(row));
+        }
+        return result;
     }
 
     /**
@@ -200,9 +1105,136 @@ public class DataFrame implements Iterable<MultipleReading> {
             throw new RuntimeException("Data frames have different columns");
         }
         this.datetimes.addAll(that.datetimes);
-        this.data.forEach((measure, list) -> {
-            list.addAll(that.data.get(measure));
-        });
+        for (int c = 0; c < this.values.size(); ++c) {
+            appendTo(this.values.get(c), that.values.get(c));
+        }
+    }
+
+    /**
+     * Concatenate several data frames into a new data frame.
+     *
+     * The result has the union of the columns, in order of first appearance,
+     * and a column missing from a data frame is filled with missing values:
+     * NaN for doubles, null otherwise. The rows are merged by datetime, rows
+     * with equal datetimes keeping the order of the data frames, so the
+     * data frames may overlap or come in any order as long as each one is
+     * sorted.
+     *
+     * The size of the result is computed up front and every column is filled
+     * in a single pass.
+     *
+     * @param frames The data frames.
+     * @return A new data frame.
+     */
+    public static DataFrame concat(List<DataFrame> frames) {
+        final List<Measure> columns = new ArrayList<>();
+        final Set<Measure> seen = new HashSet<>();
+        int size = 0;
+        for (DataFrame frame : frames) {
+            size += frame.size();
+            for (Measure column : frame.columns) {
+                if (seen.add(column)) {
+                    columns.add(column);
+                }
+            }
+        }
+
+        // Merge the rows by datetime, recording for every row of the result
+        // the data frame and the row it comes from.
+        final int[] sources = new int[size];
+        final int[] positions = new int[size];
+        final int[] heads = new int[frames.size()];
+        final PriorityQueue<Integer> queue = new PriorityQueue<>(
+                Math.max(frames.size(), 1), (a, b) -> {
+                    final int order = frames.get(a).datetimes.get(heads[a])
+                            .compareTo(frames.get(b).datetimes.get(heads[b]));
+                    return order != 0 ? order : Integer.compare(a, b);
+                });
+        for (int f = 0; f < frames.size(); ++f) {
+            if (frames.get(f).size() > 0) {
+                queue.add(f);
+            }
+        }
+        List<Instant> datetimes = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            final int f = queue.poll();
+            sources[i] = f;
+            positions[i] = heads[f];
+            datetimes.add(frames.get(f).datetimes.get(heads[f]));
+            heads[f] += 1;
+            if (heads[f] < frames.get(f).size()) {
+                queue.add(f);
+            }
+        }
+
+        DataFrame result = new DataFrame(datetimes);
+        final List<?>[] inputs = new List<?>[frames.size()];
+        for (Measure column : columns) {
+            boolean categorical = false;
+            for (int f = 0; f < frames.size(); ++f) {
+                inputs[f] = frames.get(f).valuesOf(column);
+                categorical |= inputs[f] instanceof CategoricalColumn;
+            }
+            final Object missing = column.type == Double.class ? Double.NaN : null;
+            if (categorical) {
+                CategoricalColumn values = new CategoricalColumn(size);
+                for (int i = 0; i < size; ++i) {
+                    final List<?> input = inputs[sources[i]];
+                    values.add(input == null ? null : (String) input.get(positions[i]));
+                }
+                result.putColumn(column, values);
+            } else {
+                List<Object> values = new ArrayList<>(size);
+                for (int i = 0; i < size; ++i) {
+                    final List<?> input = inputs[sources[i]];
+                    values.add(input == null ? missing : input.get(positions[i]));
+                }
+                result.putColumn(column, values);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sort the rows by datetime.
+     *
+     * The order is computed once on the epoch milliseconds by a stable sort,
+     * so rows with the same datetime keep their order, then applied to every
+     * column.
+     *
+     * @return A new data frame.
+     */
+    public DataFrame sortByTime() {
+        final TimeOrder order = new TimeOrder(this.getEpochMillis());
+        return this.permute(order.sorted());
+    }
+
+    /**
+     * Sort the rows by datetime and merge the rows sharing the same datetime.
+     *
+     * With {@link Deduplication#MEAN}, numeric columns are averaged and other
+     * columns keep the last value.
+     *
+     * @param policy How to merge rows sharing the same datetime.
+     * @return A new data frame, with one row per datetime.
+     * @see #sortByTime()
+     */
+    public DataFrame deduplicate(Deduplication policy) {
+        final TimeOrder order = new TimeOrder(this.getEpochMillis());
+        if (policy != Deduplication.MEAN) {
+            return this.permute(order.representatives(policy));
+        }
+        final int[] first = order.representatives(Deduplication.FIRST);
+        final int[] last = order.representatives(Deduplication.LAST);
+        DataFrame result = new DataFrame(
+                TimeOrder.pick(this.datetimes, first, new ArrayList<>(first.length)));
+        for (int c = 0; c < this.columns.size(); ++c) {
+            final Measure column = this.columns.get(c);
+            result.putColumn(column, Number.class.isAssignableFrom(column.type)
+                    ? order.means(this.numbersOf(column), column.type)
+                    : pick(this.values.get(c), last));
+        }
+        return result;
     }
 
     /**
@@ -262,13 +1294,11 @@ public class DataFrame implements Iterable<MultipleReading> {
 
                     for (int i = 0; i < columns.size(); ++i) {
                         double yPrev
-                                = ((Number) data.get(columns.get(i))
-                                        .get(nStepOld))
-                                        .doubleValue();
+                                = ValidityMask.toDouble((Number) this.values.get(i)
+                                        .get(nStepOld));
                         double yNext
-                                = ((Number) data.get(columns.get(i))
-                                        .get(nStepOld + 1))
-                                        .doubleValue();
+                                = ValidityMask.toDouble((Number) this.values.get(i)
+                                        .get(nStepOld + 1));
                         // t - current time (from timeNew)
 
                         double y = (((yNext - yPrev) / (tNext - tPrev))
@@ -285,13 +1315,11 @@ public class DataFrame implements Iterable<MultipleReading> {
 
                     for (int i = 0; i < columns.size(); ++i) {
                         double yPrev
-                                = ((Number) data.get(columns.get(i))
-                                        .get(nStepOld - 1))
-                                        .doubleValue();
+                                = ValidityMask.toDouble((Number) this.values.get(i)
+                                        .get(nStepOld - 1));
                         double yNext
-                                = ((Number) data.get(columns.get(i))
-                                        .get(nStepOld))
-                                        .doubleValue();
+                                = ValidityMask.toDouble((Number) this.values.get(i)
+                                        .get(nStepOld));
                         // t - current time (from timeNew)
 
                         double y = (((yNext - yPrev) / (tNext - tPrev))
@@ -334,7 +1362,7 @@ public class DataFrame implements Iterable<MultipleReading> {
                         i -> dtypes.get(i).equals(Integer.class) ? parseInteger : parseDouble
                 ));
 
-        Map<Integer, Class> dtypesMap = IntStream
+        Map<Integer, Class<?>> dtypesMap = IntStream
                 .range(0, dtypes.size())
                 .mapToObj(i -> i)
                 .collect(Collectors.toMap(
@@ -345,37 +1373,341 @@ public class DataFrame implements Iterable<MultipleReading> {
         return fromCsv(reader, formatter, timezone, parsers, dtypesMap);
     }
 
+    /**
+     * Load the data frame from a CSV file, keeping only some columns.
+     *
+     * @param reader The reader.
+     * @param formatter The formatter for the datetimes, in the first column.
+     * @param timezone The time zone of the datetimes.
+     * @param columns The names of the columns to keep.
+     * @return A new data frame.
+     * @throws IOException if the file cannot be read
+     * @see #fromCsv(Reader, DateTimeFormatter, ZoneId, List, Set, Instant,
+     * Instant)
+     */
+    public static DataFrame fromCsv(
+            Reader reader,
+            DateTimeFormatter formatter,
+            ZoneId timezone,
+            Set<String> columns
+    ) throws IOException {
+        return fromCsv(reader, formatter, timezone, columns, null, null);
+    }
+
+    /**
+     * Load the data frame from a CSV file, keeping only some columns and
+     * rows.
+     *
+     * @param reader The reader.
+     * @param formatter The formatter for the datetimes, in the first column.
+     * @param timezone The time zone of the datetimes.
+     * @param columns The names of the columns to keep, or null for all.
+     * @param startTime The first datetime to keep, or null for no limit.
+     * @param stopTime The last datetime to keep, or null for no limit.
+     * @return A new data frame.
+     * @throws IOException if the file cannot be read
+     * @see #fromCsv(Reader, DateTimeFormatter, ZoneId, List, Set, Instant,
+     * Instant)
+     */
+    public static DataFrame fromCsv(
+            Reader reader,
+            DateTimeFormatter formatter,
+            ZoneId timezone,
+            Set<String> columns,
+            Instant startTime,
+            Instant stopTime
+    ) throws IOException {
+        return fromCsv(reader, formatter, timezone, new ArrayList<>(),
+                columns, startTime, stopTime);
+    }
+
+    /**
+     * Load the data frame from a CSV file, keeping only some columns and
+     * rows.
+     *
+     * Cells of unwanted columns are not parsed, and rows outside the time
+     * range are dropped as soon as their datetime is parsed.
+     *
+     * @param reader The reader.
+     * @param formatter The formatter for the datetimes, in the first column.
+     * @param timezone The time zone of the datetimes.
+     * @param dtypes The types of all the columns following the datetimes,
+     * double by default.
+     * @param columns The names of the columns to keep, or null for all.
+     * @param startTime The first datetime to keep, or null for no limit.
+     * @param stopTime The last datetime to keep, or null for no limit.
+     * @return A new data frame.
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a column is not in the file
+     */
+    @SuppressWarnings("rawtypes")
+    public static DataFrame fromCsv(
+            Reader reader,
+            DateTimeFormatter formatter,
+            ZoneId timezone,
+            List<Class> dtypes,
+            Set<String> columns,
+            Instant startTime,
+            Instant stopTime
+    ) throws IOException {
+        Map<Integer, Function<String, Number>> parsers = new HashMap<>();
+        Map<Integer, Class<?>> dtypesMap = new HashMap<>();
+        for (int i = 0; i < dtypes.size(); ++i) {
+            parsers.put(i, dtypes.get(i).equals(Integer.class) ? parseInteger : parseDouble);
+            dtypesMap.put(i, dtypes.get(i));
+        }
+        return fromCsv(reader, formatter, timezone, parsers, dtypesMap,
+                columns, startTime, stopTime);
+    }
+
+    /**
+     * Load a time range of a CSV file using its index.
+     *
+     * @param file The CSV file.
+     * @param index The index of the file.
+     * @param formatter The formatter for the datetimes, in the first column.
+     * @param timezone The time zone of the datetimes.
+     * @param startTime The first datetime to keep, or null for no limit.
+     * @param stopTime The last datetime to keep, or null for no limit.
+     * @return A new data frame.
+     * @throws IOException if the file cannot be read
+     * @see #fromCsv(Path, CsvIndex, DateTimeFormatter, ZoneId, List, Set,
+     * Instant, Instant)
+     */
+    public static DataFrame fromCsv(
+            Path file,
+            CsvIndex index,
+            DateTimeFormatter formatter,
+            ZoneId timezone,
+            Instant startTime,
+            Instant stopTime
+    ) throws IOException {
+        return fromCsv(file, index, formatter, timezone, new ArrayList<>(),
+                null, startTime, stopTime);
+    }
+
+    /**
+     * Load a time range of a CSV file using its index, keeping only some
+     * columns.
+     *
+     * Only the region of the file between the indexed rows surrounding the
+     * time range is read and parsed.
+     *
+     * @param file The CSV file.
+     * @param index The index of the file.
+     * @param formatter The formatter for the datetimes, in the first column.
+     * @param timezone The time zone of the datetimes.
+     * @param dtypes The types of all the columns following the datetimes,
+     * double by default.
+     * @param columns The names of the columns to keep, or null for all.
+     * @param startTime The first datetime to keep, or null for no limit.
+     * @param stopTime The last datetime to keep, or null for no limit.
+     * @return A new data frame.
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the index does not match the file,
+     * or was built in another time zone
+     * @see CsvIndex
+     */
+    @SuppressWarnings("rawtypes")
+    public static DataFrame fromCsv(
+            Path file,
+            CsvIndex index,
+            DateTimeFormatter formatter,
+            ZoneId timezone,
+            List<Class> dtypes,
+            Set<String> columns,
+            Instant startTime,
+            Instant stopTime
+    ) throws IOException {
+        if (!index.getTimezone().equals(timezone)) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Index was built in time zone {0}, not {1}",
+                    index.getTimezone(), timezone));
+        }
+        final ByteBuffer region;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != index.getFileSize()
+                    || Files.getLastModifiedTime(file).toMillis()
+                    != index.getLastModified().toEpochMilli()) {
+                throw new IllegalArgumentException(
+                        MessageFormat.format("Index is out of date: {0}", file));
+            }
+            final long[] bounds = index.locate(startTime, stopTime);
+            final long length = bounds[1] - bounds[0];
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException(
+                        MessageFormat.format("Region too large: {0} bytes", length));
+            }
+            region = ByteBuffer.allocate((int) length);
+            while (region.hasRemaining()) {
+                if (channel.read(region, bounds[0] + region.position()) < 0) {
+                    break;
+                }
+            }
+        }
+        final byte[] header = (index.getHeader() + "\n").getBytes(StandardCharsets.UTF_8);
+        Reader reader = new InputStreamReader(new SequenceInputStream(
+                new ByteArrayInputStream(header),
+                new ByteArrayInputStream(region.array(), 0, region.position())),
+                StandardCharsets.UTF_8);
+        return fromCsv(reader, formatter, timezone, dtypes, columns, startTime, stopTime);
+    }
+
+    /**
+     * Load and concatenate several CSV files.
+     *
+     * @param files The CSV files.
+     * @param formatter The formatter for the datetimes, in the first column.
+     * @param timezone The time zone of the datetimes.
+     * @return A new data frame.
+     * @throws IOException if a file cannot be read
+     * @see #fromCsvFiles(List, DateTimeFormatter, ZoneId, List, Set, int)
+     */
+    public static DataFrame fromCsvFiles(
+            List<Path> files,
+            DateTimeFormatter formatter,
+            ZoneId timezone
+    ) throws IOException {
+        return fromCsvFiles(files, formatter, timezone, new ArrayList<>(), null,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Load and concatenate several CSV files, keeping only some columns.
+     *
+     * The files are parsed concurrently by a bounded number of threads, then
+     * concatenated at once into presized columns, merging their rows by
+     * datetime.
+     *
+     * @param files The CSV files.
+     * @param formatter The formatter for the datetimes, in the first column.
+     * @param timezone The time zone of the datetimes.
+     * @param dtypes The types of all the columns following the datetimes,
+     * double by default.
+     * @param columns The names of the columns to keep, or null for all.
+     * @param parallelism The maximal number of files parsed at the same time.
+     * @return A new data frame.
+     * @throws IOException if a file cannot be read
+     * @see #concat(List)
+     */
+    @SuppressWarnings("rawtypes")
+    public static DataFrame fromCsvFiles(
+            List<Path> files,
+            DateTimeFormatter formatter,
+            ZoneId timezone,
+            List<Class> dtypes,
+            Set<String> columns,
+            int parallelism
+    ) throws IOException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException(
+                    "Parallelism must be positive: " + parallelism);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(parallelism, files.size())));
+        final List<DataFrame> frames = new ArrayList<>(files.size());
+        try {
+            final List<Future<DataFrame>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                futures.add(executor.submit(() -> {
+                    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                        return fromCsv(reader, formatter, timezone, dtypes, columns, null, null);
+                    }
+                }));
+            }
+            for (Future<DataFrame> future : futures) {
+                frames.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading CSV files");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return concat(frames);
+    }
+
     private static DataFrame fromCsv(
             Reader reader,
             DateTimeFormatter formatter,
             ZoneId timezone,
             Map<Integer, Function<String, Number>> parsers,
-            Map<Integer, Class> dtypes
+            Map<Integer, Class<?>> dtypes
+    ) throws IOException {
+        return fromCsv(reader, formatter, timezone, parsers, dtypes, null, null, null);
+    }
+
+    private static DataFrame fromCsv(
+            Reader reader,
+            DateTimeFormatter formatter,
+            ZoneId timezone,
+            Map<Integer, Function<String, Number>> parsers,
+            Map<Integer, Class<?>> dtypes,
+            Set<String> selection,
+            Instant startTime,
+            Instant stopTime
     ) throws IOException {
         List<Instant> index = new ArrayList<>();
-        Map<Integer, List<Number>> values = new HashMap<>();
-        Map<Integer, String> headers = new HashMap<>();
         CSVParser parser = CSVFormat.DEFAULT.withHeader().withIgnoreSurroundingSpaces().parse(reader);
-        parser.getHeaderMap().entrySet().stream().forEach(entry -> {
-            headers.put(entry.getValue(), entry.getKey());
-            values.put(entry.getValue(), new ArrayList<>());
-        });
+        Map<String, Integer> headerMap = parser.getHeaderMap();
+        if (selection != null) {
+            for (String name : selection) {
+                Integer position = headerMap.get(name);
+                if (position == null || position == 0) {
+                    throw new IllegalArgumentException(
+                            MessageFormat.format("Unknown column: {0}", name));
+                }
+            }
+        }
+
+        // Positions of the wanted columns in the file, the first one holding
+        // the datetimes.
+        final int[] positions = headerMap.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .filter(entry -> selection == null || selection.contains(entry.getKey()))
+                .mapToInt(Map.Entry::getValue)
+                .sorted()
+                .toArray();
+        final String[] headers = new String[headerMap.size()];
+        headerMap.forEach((name, position) -> headers[position] = name);
+        final List<Function<String, Number>> columnParsers = new ArrayList<>();
+        final List<List<Number>> values = new ArrayList<>();
+        for (int position : positions) {
+            columnParsers.add(parsers.getOrDefault(position - 1, parseDouble));
+            values.add(new ArrayList<>());
+        }
+
         for (CSVRecord record : parser) {
             String datetimeString = record.get(0);
             LocalDateTime datetime = LocalDateTime.parse(datetimeString, formatter);
-            index.add(datetime.atZone(timezone).toInstant());
-            for (int i = 1; i < record.size(); ++i) {
-                String string = record.get(i);
-                values.get(i).add(parsers.getOrDefault(i - 1, parseDouble).apply(string));
+            final Instant instant = datetime.atZone(timezone).toInstant();
+            if (startTime != null && instant.isBefore(startTime)
+                    || stopTime != null && instant.isAfter(stopTime)) {
+                continue;
+            }
+            index.add(instant);
+            for (int k = 0; k < positions.length; ++k) {
+                String string = positions[k] < record.size()
+                        ? record.get(positions[k]) : "";
+                values.get(k).add(columnParsers.get(k).apply(string));
             }
         }
 
         DataFrame dataframe = new DataFrame(index);
-        values.entrySet().stream().filter(entry -> entry.getKey() > 0).forEach(entry -> {
-            final Class dtype = dtypes.getOrDefault(entry.getKey() - 1, Double.class);
-            Measure measure = new Measure(headers.get(entry.getKey()), dtype);
-            dataframe.addColumn(measure, values.get(entry.getKey()));
-        });
+        for (int k = 0; k < positions.length; ++k) {
+            final Class<?> dtype = dtypes.getOrDefault(positions[k] - 1, Double.class);
+            Measure measure = new Measure(headers[positions[k]], dtype);
+            dataframe.addColumn(measure, values.get(k));
+        }
 
         return dataframe;
     }
@@ -385,7 +1717,7 @@ public class DataFrame implements Iterable<MultipleReading> {
         try {
             CSVPrinter printer = new CSVPrinter(builder, CSVFormat.DEFAULT);
             printer.print("datetime");
-            for (Measure column : this.getColumns()) {
+            for (Measure column : this.columns) {
                 printer.print(column.name);
             }
             printer.println();
@@ -405,13 +1737,19 @@ public class DataFrame implements Iterable<MultipleReading> {
     }
 
     public void toCsv(Appendable out) throws IOException {
+        toCsv(out, null);
+    }
+
+    void toCsv(Appendable out, BitSet rows) throws IOException {
         CSVPrinter printer = new CSVPrinter(out, CSVFormat.DEFAULT);
         printer.print("datetime");
-        for (Measure column : this.getColumns()) {
+        for (Measure column : this.columns) {
             printer.print(column.name);
         }
         printer.println();
-        for (MultipleReading reading : this) {
+        final int n = this.size();
+        for (int i = nextRow(rows, 0); i >= 0 && i < n; i = nextRow(rows, i + 1)) {
+            final MultipleReading reading = this.getRow(i);
             printer.print(reading.getDatetime());
             for (Object value : reading) {
                 printer.print(escapeNan(value));
@@ -452,7 +1790,7 @@ public class DataFrame implements Iterable<MultipleReading> {
 
             @Override
             public MultipleReading next() {
-                List values = valuesIterators.stream()
+                List<Object> values = valuesIterators.stream()
                         .map(iterator -> iterator.next())
                         .collect(Collectors.toList());
                 MultipleReading reading
@@ -460,8 +1798,8 @@ public class DataFrame implements Iterable<MultipleReading> {
                 return reading;
             }
 
-            private final List<Iterator> valuesIterators = columns.stream()
-                    .map(col -> data.get(col).iterator())
+            private final List<Iterator<?>> valuesIterators = values.stream()
+                    .<Iterator<?>>map(List::iterator)
                     .collect(Collectors.toList());
             private final Iterator<Instant> datetimesIterator = datetimes.iterator();
         };
@@ -471,7 +1809,12 @@ public class DataFrame implements Iterable<MultipleReading> {
     public int hashCode() {
         int hash = 7;
         hash = 53 * hash + Objects.hashCode(this.datetimes);
-        hash = 53 * hash + Objects.hashCode(this.data);
+        // Columns are compared regardless of their order, as in a map.
+        int columnsHash = 0;
+        for (int c = 0; c < this.columns.size(); ++c) {
+            columnsHash += this.columns.get(c).hashCode() ^ this.values.get(c).hashCode();
+        }
+        hash = 53 * hash + columnsHash;
         return hash;
     }
 
@@ -490,7 +1833,16 @@ public class DataFrame implements Iterable<MultipleReading> {
         if (!Objects.equals(this.datetimes, other.datetimes)) {
             return false;
         }
-        return Objects.equals(this.data, other.data);
+        if (this.columns.size() != other.columns.size()) {
+            return false;
+        }
+        for (int c = 0; c < this.columns.size(); ++c) {
+            final List<?> values = other.valuesOf(this.columns.get(c));
+            if (values == null || !values.equals(this.values.get(c))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -519,11 +1871,126 @@ public class DataFrame implements Iterable<MultipleReading> {
         return "DataFrame{" + builder.toString() + '}';
     }
 
+    private List<?> valuesOf(Measure measure) {
+        final Integer ordinal = this.ordinals.get(measure);
+        return ordinal == null ? null : this.values.get(ordinal);
+    }
+
+    // Columns hold values of their measure type, here a subclass of Number.
+    @SuppressWarnings("unchecked")
+    private List<Number> numbersOf(Measure measure) {
+        return (List<Number>) this.valuesOf(measure);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<Number> numberType(Measure measure) {
+        return (Class<Number>) measure.type;
+    }
+
+    DataFrame materialize(BitSet rows) {
+        List<Instant> datetimes = new ArrayList<>(rows.cardinality());
+        for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+            datetimes.add(this.datetimes.get(i));
+        }
+        DataFrame result = new DataFrame(datetimes);
+        for (int c = 0; c < this.columns.size(); ++c) {
+            result.putColumn(this.columns.get(c), select(this.values.get(c), rows));
+        }
+        return result;
+    }
+
+    private static <T> List<T> select(List<T> column, BitSet rows) {
+        List<T> selected = emptyLike(column, rows.cardinality());
+        for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+            selected.add(column.get(i));
+        }
+        return selected;
+    }
+
+    private DataFrame permute(int[] positions) {
+        DataFrame result = new DataFrame(
+                TimeOrder.pick(this.datetimes, positions, new ArrayList<>(positions.length)));
+        for (int c = 0; c < this.columns.size(); ++c) {
+            result.putColumn(this.columns.get(c), pick(this.values.get(c), positions));
+        }
+        return result;
+    }
+
+    private static <T> List<T> pick(List<T> column, int[] positions) {
+        return TimeOrder.pick(column, positions, emptyLike(column, positions.length));
+    }
+
+    // A categorical column is a List<String>, so T is String there.
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> emptyLike(List<T> column, int capacity) {
+        return column instanceof CategoricalColumn
+                ? (List<T>) new CategoricalColumn(capacity)
+                : new ArrayList<>(capacity);
+    }
+
+    // Both columns belong to the same measure, hence hold the same type.
+    @SuppressWarnings("unchecked")
+    private static <T> void appendTo(List<T> column, List<?> values) {
+        column.addAll((List<T>) values);
+    }
+
+    private List<Measure> numericColumns() {
+        return this.columns.stream()
+                .filter(column -> Number.class.isAssignableFrom(column.type))
+                .collect(Collectors.toList());
+    }
+
+    static int nextRow(BitSet rows, int from) {
+        return rows == null ? from : rows.nextSetBit(from);
+    }
+
+    /**
+     * Process the rows in parallel chunks and merge the partial results.
+     *
+     * There is always at least one chunk, possibly empty.
+     *
+     * @param n The number of rows.
+     * @param chunk The function computing a partial result from the rows
+     * between two indices (exclusive end).
+     * @param merge The function merging two partial results.
+     * @return The merged result.
+     */
+    private static <A> A inParallelChunks(
+            int n, BiFunction<Integer, Integer, A> chunk, BinaryOperator<A> merge) {
+        final int chunks = (n + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+        return IntStream.range(0, Math.max(chunks, 1))
+                .parallel()
+                .mapToObj(c -> {
+                    final int from = c * PARALLEL_CHUNK_SIZE;
+                    return chunk.apply(from, Math.min(from + PARALLEL_CHUNK_SIZE, n));
+                })
+                .reduce(merge)
+                .get();
+    }
+
+    private void putColumn(Measure measure, List<?> column) {
+        final Integer ordinal = this.ordinals.get(measure);
+        if (ordinal == null) {
+            this.ordinals.put(measure, this.columns.size());
+            this.columns.add(measure);
+            this.values.add(column);
+        } else {
+            this.values.set(ordinal, column);
+        }
+    }
+
+    private long[] getEpochMillis() {
+        final int n = this.size();
+        final long[] result = new long[n];
+        for (int i = 0; i < n; ++i) {
+            result[i] = this.datetimes.get(i).toEpochMilli();
+        }
+        return result;
+    }
+
     private Object escapeNan(Object value) {
-        if (value instanceof Double) {
-            if (((Double) value).isNaN()) {
-                return "";
-            }
+        if (ValidityMask.isMissing(value)) {
+            return "";
         }
 
         return value;
@@ -531,10 +1998,16 @@ public class DataFrame implements Iterable<MultipleReading> {
 
     private final List<Instant> datetimes;
     private final List<Measure> columns;
-    private final Map<Measure, List> data;
+    private final List<List<?>> values;
+    private final Map<Measure, Integer> ordinals;
+
+    private static final int PARALLEL_CHUNK_SIZE = 1 << 16;
 
     private static final Function<String, Number> parseDouble = string -> string.isEmpty() ? Double.NaN : Double.valueOf(string);
     private static final Function<String, Number> parseInteger = string -> {
+        if (string.isEmpty()) {
+            return null;
+        }
         try {
             return Integer.valueOf(string);
         } catch (NumberFormatException e) {
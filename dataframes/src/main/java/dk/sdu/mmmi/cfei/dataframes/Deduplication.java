@@ -0,0 +1,22 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+/**
+ * A policy to merge readings sharing the same datetime.
+ *
+ * @author cgim
+ */
+public enum Deduplication {
+    /**
+     * Keep the reading which came first.
+     */
+    FIRST,
+    /**
+     * Keep the reading which came last.
+     */
+    LAST,
+    /**
+     * Keep the mean of the readings, ignoring missing values. The mean is
+     * rounded for integer values.
+     */
+    MEAN
+}
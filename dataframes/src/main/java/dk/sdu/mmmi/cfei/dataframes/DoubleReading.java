@@ -0,0 +1,68 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.Instant;
+
+/**
+ * Represents a reading as primitive values.
+ *
+ * Instances are flyweights: an iterator returned by
+ * {@link TimeSeries#doubleReadings()} updates and returns the same instance
+ * for every position, so a reading must not be stored or shared. Use
+ * {@link #toReading()} to obtain an immutable copy.
+ *
+ * @author cgim
+ */
+public class DoubleReading {
+
+    DoubleReading() {
+    }
+
+    /**
+     * Return the datetime as milliseconds since the epoch.
+     *
+     * @return Milliseconds since the epoch.
+     */
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * Return the datetime.
+     *
+     * @return A datetime.
+     */
+    public Instant getDatetime() {
+        return Instant.ofEpochMilli(epochMillis);
+    }
+
+    /**
+     * Return the value.
+     *
+     * @return The value.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Copy this reading to an immutable reading.
+     *
+     * @return A reading.
+     */
+    public Reading<Double> toReading() {
+        return new Reading<>(getDatetime(), value, Double.class);
+    }
+
+    void set(long epochMillis, double value) {
+        this.epochMillis = epochMillis;
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleReading{" + "datetime=" + getDatetime() + ", value=" + value + '}';
+    }
+
+    private long epochMillis;
+    private double value;
+}
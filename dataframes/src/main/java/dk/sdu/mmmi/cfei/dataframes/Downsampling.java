@@ -0,0 +1,135 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.util.Arrays;
+
+/**
+ * A method to reduce the number of readings of a time series for
+ * visualization, keeping its visual shape.
+ *
+ * Both methods select a subset of the original readings rather than computing
+ * new values, so peaks are preserved. Missing values (NaN) are never
+ * selected.
+ *
+ * @author cgim
+ */
+public enum Downsampling {
+    /**
+     * Largest-Triangle-Three-Buckets, by Steinarsson: keep the first and last
+     * readings, and from each bucket in between the reading forming the
+     * largest triangle with the reading selected in the previous bucket and
+     * the average of the next bucket.
+     */
+    LARGEST_TRIANGLE_THREE_BUCKETS,
+    /**
+     * Keep the minimal and the maximal readings of each bucket.
+     */
+    MIN_MAX;
+
+    /**
+     * Select the readings to keep.
+     *
+     * @param datetimes The datetimes, as milliseconds since the epoch, sorted.
+     * @param values The values.
+     * @param threshold The maximal number of readings to keep.
+     * @return The sorted positions of the readings to keep.
+     * @throws IllegalArgumentException if the threshold is too small for the
+     * method
+     */
+    int[] select(long[] datetimes, double[] values, int threshold) {
+        final int minimum = this == MIN_MAX ? 2 : 3;
+        if (threshold < minimum) {
+            throw new IllegalArgumentException(
+                    "Threshold must be at least " + minimum + ": " + threshold);
+        }
+        // Work on the valid readings only, then map back to positions.
+        int[] valid = new int[values.length];
+        int n = 0;
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] == values[i]) {
+                valid[n] = i;
+                n += 1;
+            }
+        }
+        valid = Arrays.copyOf(valid, n);
+        if (n <= threshold) {
+            return valid;
+        }
+        final int[] selected = this == MIN_MAX
+                ? minMax(values, valid, threshold / 2)
+                : largestTriangleThreeBuckets(datetimes, values, valid, threshold);
+        for (int k = 0; k < selected.length; ++k) {
+            selected[k] = valid[selected[k]];
+        }
+        return selected;
+    }
+
+    private static int[] largestTriangleThreeBuckets(
+            long[] datetimes, double[] values, int[] valid, int threshold) {
+        final int n = valid.length;
+        final long origin = datetimes[valid[0]];
+        final int[] result = new int[threshold];
+        final double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        for (int b = 0; b < threshold - 2; ++b) {
+            // Average of the next bucket, the last point being its own bucket.
+            final int nextStart = (int) ((b + 1) * every) + 1;
+            final int nextEnd = Math.min((int) ((b + 2) * every) + 1, n);
+            double averageX = 0.0;
+            double averageY = 0.0;
+            for (int j = nextStart; j < nextEnd; ++j) {
+                averageX += datetimes[valid[j]] - origin;
+                averageY += values[valid[j]];
+            }
+            averageX /= nextEnd - nextStart;
+            averageY /= nextEnd - nextStart;
+
+            final double ax = datetimes[valid[a]] - origin;
+            final double ay = values[valid[a]];
+            final int start = (int) (b * every) + 1;
+            final int end = (int) ((b + 1) * every) + 1;
+            double maxArea = -1.0;
+            int selected = start;
+            for (int j = start; j < end; ++j) {
+                final double area = Math.abs(
+                        (ax - averageX) * (values[valid[j]] - ay)
+                        - (ax - (datetimes[valid[j]] - origin)) * (averageY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    selected = j;
+                }
+            }
+            result[b + 1] = selected;
+            a = selected;
+        }
+        result[threshold - 1] = n - 1;
+        return result;
+    }
+
+    private static int[] minMax(double[] values, int[] valid, int buckets) {
+        final int n = valid.length;
+        final int[] result = new int[2 * buckets];
+        int k = 0;
+        for (int b = 0; b < buckets; ++b) {
+            final int start = (int) ((long) b * n / buckets);
+            final int end = (int) ((long) (b + 1) * n / buckets);
+            int min = start;
+            int max = start;
+            for (int j = start + 1; j < end; ++j) {
+                final double value = values[valid[j]];
+                if (value < values[valid[min]]) {
+                    min = j;
+                }
+                if (value > values[valid[max]]) {
+                    max = j;
+                }
+            }
+            result[k] = Math.min(min, max);
+            k += 1;
+            if (min != max) {
+                result[k] = Math.max(min, max);
+                k += 1;
+            }
+        }
+        return Arrays.copyOf(result, k);
+    }
+}
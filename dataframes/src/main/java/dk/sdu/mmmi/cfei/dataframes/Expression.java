@@ -0,0 +1,517 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An arithmetic expression over the columns of a data frame.
+ *
+ * Expressions are parsed once, then compiled into an evaluator working on
+ * blocks of rows of primitive columns. The following syntax is supported:
+ *
+ * <ul>
+ * <li>numeric literals, such as {@code 3}, {@code 0.001} or {@code 1e-3};</li>
+ * <li>column names, such as {@code supplyTemp}; names containing other
+ * characters than letters, digits, underscores and dots must be quoted with
+ * back-ticks, such as {@code `Temperature [C]`};</li>
+ * <li>the arithmetic operators {@code + - * /} and parentheses;</li>
+ * <li>the comparison operators {@code < <= > >= == !=}, which evaluate to 1.0
+ * when true and to 0.0 when false.</li>
+ * </ul>
+ *
+ * <pre>
+ * {@code
+ * Expression expression = Expression.parse("power * 0.001 / area");
+ * }
+ * </pre>
+ *
+ * @author cgim
+ */
+public final class Expression {
+
+    private Expression(String text, Node root, Set<String> columnNames) {
+        this.text = text;
+        this.root = root;
+        this.columnNames = Collections.unmodifiableSet(columnNames);
+    }
+
+    /**
+     * Parse an expression.
+     *
+     * @param text The expression.
+     * @return A parsed expression.
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static Expression parse(String text) {
+        Parser parser = new Parser(text);
+        Node root = parser.parseExpression();
+        parser.expectEnd();
+        return new Expression(text, root, parser.columnNames);
+    }
+
+    /**
+     * Return the names of the columns referenced by the expression.
+     *
+     * @return A set of column names.
+     */
+    public Set<String> getColumnNames() {
+        return this.columnNames;
+    }
+
+    /**
+     * Compile the expression against a set of columns.
+     *
+     * @param columns The values of every referenced column.
+     * @return A compiled evaluator.
+     * @throws IllegalArgumentException if a referenced column is missing
+     */
+    Evaluator compile(Map<String, double[]> columns) {
+        return this.root.compile(columns);
+    }
+
+    @Override
+    public String toString() {
+        return this.text;
+    }
+
+    /**
+     * A compiled expression, evaluating blocks of rows.
+     */
+    interface Evaluator {
+
+        /**
+         * Evaluate the expression on a block of rows.
+         *
+         * @param offset The first row.
+         * @param length The number of rows, at most {@link #BLOCK_SIZE}.
+         * @param result The array where to store the results, starting at
+         * index 0.
+         */
+        void evaluate(int offset, int length, double[] result);
+    }
+
+    static final int BLOCK_SIZE = 1024;
+
+    private interface Node {
+
+        Evaluator compile(Map<String, double[]> columns);
+
+        default boolean isConstant() {
+            return false;
+        }
+
+        default double constantValue() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class ConstantNode implements Node {
+
+        ConstantNode(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public Evaluator compile(Map<String, double[]> columns) {
+            return (offset, length, result) -> {
+                for (int i = 0; i < length; ++i) {
+                    result[i] = value;
+                }
+            };
+        }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
+
+        @Override
+        public double constantValue() {
+            return this.value;
+        }
+
+        private final double value;
+    }
+
+    private static class ColumnNode implements Node {
+
+        ColumnNode(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Evaluator compile(Map<String, double[]> columns) {
+            final double[] column = columns.get(this.name);
+            if (column == null) {
+                throw new IllegalArgumentException(
+                        "Unknown column in expression: " + this.name);
+            }
+            return (offset, length, result) -> {
+                System.arraycopy(column, offset, result, 0, length);
+            };
+        }
+
+        private final String name;
+    }
+
+    private static class NegateNode implements Node {
+
+        NegateNode(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public Evaluator compile(Map<String, double[]> columns) {
+            final Evaluator evaluator = this.operand.compile(columns);
+            return (offset, length, result) -> {
+                evaluator.evaluate(offset, length, result);
+                for (int i = 0; i < length; ++i) {
+                    result[i] = -result[i];
+                }
+            };
+        }
+
+        private final Node operand;
+    }
+
+    private enum Operator {
+        ADD("+"),
+        SUBTRACT("-"),
+        MULTIPLY("*"),
+        DIVIDE("/"),
+        LESS("<"),
+        LESS_OR_EQUAL("<="),
+        GREATER(">"),
+        GREATER_OR_EQUAL(">="),
+        EQUAL("=="),
+        NOT_EQUAL("!=");
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        double apply(double a, double b) {
+            switch (this) {
+                case ADD:
+                    return a + b;
+                case SUBTRACT:
+                    return a - b;
+                case MULTIPLY:
+                    return a * b;
+                case DIVIDE:
+                    return a / b;
+                case LESS:
+                    return a < b ? 1.0 : 0.0;
+                case LESS_OR_EQUAL:
+                    return a <= b ? 1.0 : 0.0;
+                case GREATER:
+                    return a > b ? 1.0 : 0.0;
+                case GREATER_OR_EQUAL:
+                    return a >= b ? 1.0 : 0.0;
+                case EQUAL:
+                    return a == b ? 1.0 : 0.0;
+                default:
+                    return a != b ? 1.0 : 0.0;
+            }
+        }
+
+        /**
+         * Combine two blocks, storing the result in the left one.
+         *
+         * The dispatch happens once per block, each loop is a tight loop over
+         * primitive arrays.
+         */
+        void apply(double[] a, double[] b, int length) {
+            switch (this) {
+                case ADD:
+                    for (int i = 0; i < length; ++i) {
+                        a[i] = a[i] + b[i];
+                    }
+                    break;
+                case SUBTRACT:
+                    for (int i = 0; i < length; ++i) {
+                        a[i] = a[i] - b[i];
+                    }
+                    break;
+                case MULTIPLY:
+                    for (int i = 0; i < length; ++i) {
+                        a[i] = a[i] * b[i];
+                    }
+                    break;
+                case DIVIDE:
+                    for (int i = 0; i < length; ++i) {
+                        a[i] = a[i] / b[i];
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < length; ++i) {
+                        a[i] = apply(a[i], b[i]);
+                    }
+            }
+        }
+
+        /**
+         * Combine a block with a constant, storing the result in the block.
+         */
+        void apply(double[] a, double b, int length) {
+            switch (this) {
+                case ADD:
+                    for (int i = 0; i < length; ++i) {
+                        a[i] = a[i] + b;
+                    }
+                    break;
+                case SUBTRACT:
+                    for (int i = 0; i < length; ++i) {
+                        a[i] = a[i] - b;
+                    }
+                    break;
+                case MULTIPLY:
+                    for (int i = 0; i < length; ++i) {
+                        a[i] = a[i] * b;
+                    }
+                    break;
+                case DIVIDE:
+                    for (int i = 0; i < length; ++i) {
+                        a[i] = a[i] / b;
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < length; ++i) {
+                        a[i] = apply(a[i], b);
+                    }
+            }
+        }
+
+        final String symbol;
+    }
+
+    private static class BinaryNode implements Node {
+
+        BinaryNode(Operator operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Evaluator compile(Map<String, double[]> columns) {
+            final Operator op = this.operator;
+            final Evaluator leftEvaluator = this.left.compile(columns);
+            if (this.right.isConstant()) {
+                final double constant = this.right.constantValue();
+                return (offset, length, result) -> {
+                    leftEvaluator.evaluate(offset, length, result);
+                    op.apply(result, constant, length);
+                };
+            }
+            final Evaluator rightEvaluator = this.right.compile(columns);
+            final double[] buffer = new double[BLOCK_SIZE];
+            return (offset, length, result) -> {
+                leftEvaluator.evaluate(offset, length, result);
+                rightEvaluator.evaluate(offset, length, buffer);
+                op.apply(result, buffer, length);
+            };
+        }
+
+        private final Operator operator;
+        private final Node left;
+        private final Node right;
+    }
+
+    private static class Parser {
+
+        Parser(String text) {
+            this.text = text;
+            this.position = 0;
+            this.columnNames = new LinkedHashSet<>();
+        }
+
+        Node parseExpression() {
+            Node left = parseAdditive();
+            skipWhitespace();
+            Operator operator = null;
+            for (Operator candidate : COMPARISONS) {
+                if (this.text.startsWith(candidate.symbol, this.position)) {
+                    operator = candidate;
+                    break;
+                }
+            }
+            if (operator == null) {
+                return left;
+            }
+            this.position += operator.symbol.length();
+            return combine(operator, left, parseAdditive());
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (this.position < this.text.length()) {
+                throw error("Unexpected character");
+            }
+        }
+
+        private Node parseAdditive() {
+            Node node = parseTerm();
+            while (true) {
+                skipWhitespace();
+                if (accept('+')) {
+                    node = combine(Operator.ADD, node, parseTerm());
+                } else if (accept('-')) {
+                    node = combine(Operator.SUBTRACT, node, parseTerm());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node parseTerm() {
+            Node node = parseUnary();
+            while (true) {
+                skipWhitespace();
+                if (accept('*')) {
+                    node = combine(Operator.MULTIPLY, node, parseUnary());
+                } else if (accept('/')) {
+                    node = combine(Operator.DIVIDE, node, parseUnary());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node parseUnary() {
+            skipWhitespace();
+            if (accept('-')) {
+                Node operand = parseUnary();
+                if (operand.isConstant()) {
+                    return new ConstantNode(-operand.constantValue());
+                }
+                return new NegateNode(operand);
+            } else if (accept('+')) {
+                return parseUnary();
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() {
+            skipWhitespace();
+            if (this.position >= this.text.length()) {
+                throw error("Unexpected end of expression");
+            }
+            final char c = this.text.charAt(this.position);
+            if (accept('(')) {
+                Node node = parseExpression();
+                skipWhitespace();
+                if (!accept(')')) {
+                    throw error("Expected ')'");
+                }
+                return node;
+            } else if (c == '`') {
+                final int end = this.text.indexOf('`', this.position + 1);
+                if (end < 0) {
+                    throw error("Unterminated quoted column name");
+                }
+                String name = this.text.substring(this.position + 1, end);
+                this.position = end + 1;
+                return column(name);
+            } else if (Character.isDigit(c) || c == '.') {
+                return parseNumber();
+            } else if (Character.isLetter(c) || c == '_') {
+                final int start = this.position;
+                while (this.position < this.text.length()
+                        && isIdentifierPart(this.text.charAt(this.position))) {
+                    this.position += 1;
+                }
+                return column(this.text.substring(start, this.position));
+            }
+            throw error("Unexpected character");
+        }
+
+        private Node parseNumber() {
+            final int start = this.position;
+            while (this.position < this.text.length()) {
+                final char c = this.text.charAt(this.position);
+                final boolean exponentSign = (c == '+' || c == '-')
+                        && this.position > start
+                        && Character.toLowerCase(this.text.charAt(this.position - 1)) == 'e';
+                if (Character.isDigit(c) || c == '.' || c == 'e' || c == 'E' || exponentSign) {
+                    this.position += 1;
+                } else {
+                    break;
+                }
+            }
+            try {
+                return new ConstantNode(
+                        Double.parseDouble(this.text.substring(start, this.position)));
+            } catch (NumberFormatException ex) {
+                this.position = start;
+                throw error("Invalid number");
+            }
+        }
+
+        private Node column(String name) {
+            this.columnNames.add(name);
+            return new ColumnNode(name);
+        }
+
+        private static Node combine(Operator operator, Node left, Node right) {
+            if (left.isConstant() && right.isConstant()) {
+                return new ConstantNode(
+                        operator.apply(left.constantValue(), right.constantValue()));
+            }
+            return new BinaryNode(operator, left, right);
+        }
+
+        private static boolean isIdentifierPart(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+        }
+
+        private boolean accept(char c) {
+            if (this.position < this.text.length()
+                    && this.text.charAt(this.position) == c) {
+                this.position += 1;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (this.position < this.text.length()
+                    && Character.isWhitespace(this.text.charAt(this.position))) {
+                this.position += 1;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(
+                    MessageFormat.format(
+                            "{0} at position {1} in expression \"{2}\"",
+                            message,
+                            this.position,
+                            this.text
+                    )
+            );
+        }
+
+        private final String text;
+        private int position;
+        private final Set<String> columnNames;
+
+        // Two-character operators come first, so that they take precedence
+        // over their one-character prefixes.
+        private static final Operator[] COMPARISONS = {
+            Operator.LESS_OR_EQUAL,
+            Operator.GREATER_OR_EQUAL,
+            Operator.EQUAL,
+            Operator.NOT_EQUAL,
+            Operator.LESS,
+            Operator.GREATER
+        };
+    }
+
+    private final String text;
+    private final Node root;
+    private final Set<String> columnNames;
+}
@@ -0,0 +1,90 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates count, sum, minimum and maximum of several columns over a fixed
+ * number of groups, in primitive arrays.
+ *
+ * Accumulators built over disjoint sets of rows can be merged, so that large
+ * data frames can be processed in parallel chunks.
+ *
+ * @author cgim
+ */
+class GroupAccumulator {
+
+    GroupAccumulator(int columns, int groups) {
+        this.count = new long[columns][groups];
+        this.sum = new double[columns][groups];
+        this.min = new double[columns][groups];
+        this.max = new double[columns][groups];
+        for (int c = 0; c < columns; ++c) {
+            Arrays.fill(this.min[c], Double.POSITIVE_INFINITY);
+            Arrays.fill(this.max[c], Double.NEGATIVE_INFINITY);
+        }
+    }
+
+    /**
+     * Accumulate a value, ignoring NaN.
+     *
+     * @param column The column index.
+     * @param group The group index.
+     * @param value The value.
+     */
+    void accept(int column, int group, double value) {
+        if (value != value) {
+            return;
+        }
+        this.count[column][group] += 1;
+        this.sum[column][group] += value;
+        if (value < this.min[column][group]) {
+            this.min[column][group] = value;
+        }
+        if (value > this.max[column][group]) {
+            this.max[column][group] = value;
+        }
+    }
+
+    /**
+     * Merge another accumulator into this one.
+     *
+     * @param that The other accumulator.
+     * @return This accumulator.
+     */
+    GroupAccumulator merge(GroupAccumulator that) {
+        for (int c = 0; c < this.count.length; ++c) {
+            for (int g = 0; g < this.count[c].length; ++g) {
+                this.count[c][g] += that.count[c][g];
+                this.sum[c][g] += that.sum[c][g];
+                this.min[c][g] = Math.min(this.min[c][g], that.min[c][g]);
+                this.max[c][g] = Math.max(this.max[c][g], that.max[c][g]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Compute an aggregation for every group of a column.
+     *
+     * @param column The column index.
+     * @param aggregation The aggregation.
+     * @return An array of aggregated values, one per group.
+     */
+    double[] finish(int column, Aggregation aggregation) {
+        final int groups = this.count[column].length;
+        final double[] result = new double[groups];
+        for (int g = 0; g < groups; ++g) {
+            result[g] = aggregation.finish(
+                    this.count[column][g],
+                    this.sum[column][g],
+                    this.min[column][g],
+                    this.max[column][g]);
+        }
+        return result;
+    }
+
+    private final long[][] count;
+    private final double[][] sum;
+    private final double[][] min;
+    private final double[][] max;
+}
@@ -0,0 +1,23 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+/**
+ * A method to estimate values between readings.
+ *
+ * @author cgim
+ */
+public enum Interpolation {
+    /**
+     * Hold the previous reading until the next one.
+     */
+    STEP,
+    /**
+     * Join consecutive readings with straight lines.
+     */
+    LINEAR,
+    /**
+     * Join consecutive readings with a piecewise cubic curve which does not
+     * overshoot the readings, i.e., which is monotone wherever the readings
+     * are (Fritsch-Carlson method).
+     */
+    MONOTONE_CUBIC
+}
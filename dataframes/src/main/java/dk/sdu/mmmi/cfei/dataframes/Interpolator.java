@@ -0,0 +1,224 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interpolates readings at arbitrary datetimes.
+ *
+ * The coefficients of every segment between two consecutive valid readings
+ * are computed once, then any sorted sequence of datetimes is evaluated in a
+ * single scan merging it with the readings.
+ *
+ * Missing readings (NaN) are skipped. Datetimes outside the range of the
+ * readings, or inside a segment longer than the maximal gap, evaluate to NaN.
+ *
+ * @author cgim
+ */
+class Interpolator {
+
+    /**
+     * Create an interpolator.
+     *
+     * @param datetimes The datetimes of the readings, as milliseconds since the
+     * epoch, sorted. Of several valid readings at the same datetime, the last
+     * one is used.
+     * @param values The values of the readings.
+     * @param method The interpolation method.
+     * @param maxGapMillis The maximal distance between two readings to
+     * interpolate between them, or a negative number for no limit.
+     */
+    Interpolator(long[] datetimes, double[] values, Interpolation method, long maxGapMillis) {
+        // Keep the last valid reading of every datetime, so that every
+        // segment has a positive width.
+        int n = 0;
+        long previous = 0;
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] == values[i] && (n == 0 || datetimes[i] != previous)) {
+                previous = datetimes[i];
+                n += 1;
+            }
+        }
+        this.x = new long[n];
+        this.y = new double[n];
+        int j = -1;
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] == values[i]) {
+                if (j < 0 || datetimes[i] != this.x[j]) {
+                    j += 1;
+                    this.x[j] = datetimes[i];
+                }
+                this.y[j] = values[i];
+            }
+        }
+        this.method = method;
+        this.maxGapMillis = maxGapMillis < 0 ? Long.MAX_VALUE : maxGapMillis;
+
+        final int segments = Math.max(n - 1, 0);
+        this.c1 = new double[segments];
+        this.c2 = new double[segments];
+        this.c3 = new double[segments];
+        switch (method) {
+            case LINEAR:
+                for (int k = 0; k < segments; ++k) {
+                    this.c1[k] = (this.y[k + 1] - this.y[k]) / (this.x[k + 1] - this.x[k]);
+                }
+                break;
+            case MONOTONE_CUBIC:
+                computeMonotoneCubic();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Evaluate the interpolation at sorted datetimes.
+     *
+     * @param targets The datetimes, as milliseconds since the epoch, sorted.
+     * @return An array of interpolated values.
+     */
+    double[] evaluate(long[] targets) {
+        final int n = this.x.length;
+        final double[] result = new double[targets.length];
+        int k = 0;
+        for (int i = 0; i < targets.length; ++i) {
+            final long t = targets[i];
+            if (n == 0 || t < this.x[0] || t > this.x[n - 1]) {
+                result[i] = Double.NaN;
+                continue;
+            }
+            // Find the segment [x[k], x[k + 1]) containing t.
+            while (k + 1 < n && this.x[k + 1] <= t) {
+                k += 1;
+            }
+            if (this.x[k] == t) {
+                result[i] = this.y[k];
+            } else if (this.x[k + 1] - this.x[k] > this.maxGapMillis) {
+                result[i] = Double.NaN;
+            } else {
+                result[i] = evaluateSegment(k, t - this.x[k]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create a regular sequence of datetimes.
+     *
+     * @param start The first datetime, as milliseconds since the epoch.
+     * @param stop The last datetime (inclusive), as milliseconds since the
+     * epoch.
+     * @param step The step in milliseconds.
+     * @return An array of datetimes, empty if stop is before start.
+     * @throws IllegalArgumentException if the step is not positive
+     */
+    static long[] grid(long start, long stop, long step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException(
+                    "Step must be positive: " + step + " ms");
+        }
+        if (stop < start) {
+            return new long[0];
+        }
+        final long n = (stop - start) / step + 1;
+        if (n > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(
+                    "Too many datetimes: " + n);
+        }
+        final long[] result = new long[(int) n];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = start + i * step;
+        }
+        return result;
+    }
+
+    /**
+     * Convert a sorted list of datetimes to milliseconds since the epoch.
+     *
+     * @param datetimes The datetimes.
+     * @return An array of milliseconds since the epoch.
+     * @throws IllegalArgumentException if the datetimes are not sorted
+     */
+    static long[] toEpochMillis(List<Instant> datetimes) {
+        final long[] result = new long[datetimes.size()];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = datetimes.get(i).toEpochMilli();
+            if (i > 0 && result[i] < result[i - 1]) {
+                throw new IllegalArgumentException(
+                        "Datetimes are not sorted at position " + i
+                        + ": " + datetimes.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert milliseconds since the epoch to a list of datetimes.
+     *
+     * @param epochMillis The datetimes, as milliseconds since the epoch.
+     * @return A new list of datetimes.
+     */
+    static List<Instant> toInstants(long[] epochMillis) {
+        final List<Instant> result = new ArrayList<>(epochMillis.length);
+        for (long t : epochMillis) {
+            result.add(Instant.ofEpochMilli(t));
+        }
+        return result;
+    }
+
+    private double evaluateSegment(int k, double dx) {
+        switch (this.method) {
+            case STEP:
+                return this.y[k];
+            case LINEAR:
+                return this.y[k] + this.c1[k] * dx;
+            default:
+                return this.y[k] + dx * (this.c1[k] + dx * (this.c2[k] + dx * this.c3[k]));
+        }
+    }
+
+    private void computeMonotoneCubic() {
+        final int segments = this.c1.length;
+        if (segments == 0) {
+            return;
+        }
+        final double[] h = new double[segments];
+        final double[] slopes = new double[segments];
+        for (int k = 0; k < segments; ++k) {
+            h[k] = this.x[k + 1] - this.x[k];
+            slopes[k] = (this.y[k + 1] - this.y[k]) / h[k];
+        }
+
+        // Tangents at every reading, zero at local extrema so that the curve
+        // does not overshoot (Fritsch-Butland weighted harmonic mean).
+        final double[] tangents = new double[segments + 1];
+        tangents[0] = slopes[0];
+        tangents[segments] = slopes[segments - 1];
+        for (int k = 1; k < segments; ++k) {
+            if (slopes[k - 1] * slopes[k] <= 0) {
+                tangents[k] = 0.0;
+            } else {
+                tangents[k] = 3 * (h[k - 1] + h[k])
+                        / ((2 * h[k] + h[k - 1]) / slopes[k - 1]
+                        + (h[k] + 2 * h[k - 1]) / slopes[k]);
+            }
+        }
+
+        // Hermite polynomial of every segment in power form.
+        for (int k = 0; k < segments; ++k) {
+            this.c1[k] = tangents[k];
+            this.c2[k] = (3 * slopes[k] - 2 * tangents[k] - tangents[k + 1]) / h[k];
+            this.c3[k] = (tangents[k] + tangents[k + 1] - 2 * slopes[k]) / (h[k] * h[k]);
+        }
+    }
+
+    private final long[] x;
+    private final double[] y;
+    private final Interpolation method;
+    private final long maxGapMillis;
+    private final double[] c1;
+    private final double[] c2;
+    private final double[] c3;
+}
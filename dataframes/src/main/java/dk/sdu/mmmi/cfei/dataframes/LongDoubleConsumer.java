@@ -0,0 +1,22 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+/**
+ * An operation accepting a reading, given as a datetime in milliseconds since
+ * the epoch and a double value.
+ *
+ * This is the primitive specialization of a consumer of {@link Reading}, it
+ * allows to traverse readings without allocating objects.
+ *
+ * @author cgim
+ */
+@FunctionalInterface
+public interface LongDoubleConsumer {
+
+    /**
+     * Perform the operation on a reading.
+     *
+     * @param epochMillis The datetime as milliseconds since the epoch.
+     * @param value The value.
+     */
+    void accept(long epochMillis, double value);
+}
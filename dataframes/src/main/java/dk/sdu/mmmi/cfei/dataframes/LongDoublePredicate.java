@@ -0,0 +1,23 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+/**
+ * A predicate on a reading, given as a datetime in milliseconds since the
+ * epoch and a double value.
+ *
+ * This is the primitive specialization of a predicate on a {@link Reading}, it
+ * allows to test readings without allocating objects.
+ *
+ * @author cgim
+ */
+@FunctionalInterface
+public interface LongDoublePredicate {
+
+    /**
+     * Evaluate the predicate on a reading.
+     *
+     * @param epochMillis The datetime as milliseconds since the epoch.
+     * @param value The value.
+     * @return True if the reading satisfies the predicate.
+     */
+    boolean test(long epochMillis, double value);
+}
@@ -0,0 +1,276 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.util.Arrays;
+
+/**
+ * A streaming sketch estimating the quantiles of a sequence of values.
+ *
+ * The sketch follows the KLL algorithm by Karnin, Lang and Liberty: values
+ * are stored in a hierarchy of compactors, where each level holds values of
+ * weight twice the one of the level below, and full levels are sorted and
+ * halved. Memory is bounded by about {@code 3 k} values plus a logarithmic
+ * term, independently of the number of values, and the rank error is roughly
+ * proportional to {@code 1 / k}.
+ *
+ * Sketches built over disjoint sequences can be merged, so that long
+ * sequences can be processed in parallel chunks. NaN values are ignored. The
+ * minimum and maximum are tracked exactly.
+ *
+ * <pre>
+ * {@code
+ * QuantileSketch sketch = new QuantileSketch();
+ * timeSeries.forEach((epochMillis, value) -> sketch.accept(value));
+ * double[] percentiles = sketch.quantiles(0.5, 0.95, 0.99);
+ * }
+ * </pre>
+ *
+ * @author cgim
+ */
+public class QuantileSketch {
+
+    /**
+     * Create an empty sketch with default accuracy.
+     */
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Create an empty sketch.
+     *
+     * @param k The accuracy parameter, the size of the largest compactor.
+     * Larger values give more accurate quantiles and use more memory.
+     */
+    public QuantileSketch(int k) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException(
+                    "Accuracy parameter must be at least " + MIN_CAPACITY + ": " + k);
+        }
+        this.k = k;
+        this.levels = new double[][]{new double[k]};
+        this.sizes = new int[1];
+        this.offsets = new int[1];
+        this.count = 0;
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Add a value to the sketch.
+     *
+     * @param value The value, ignored if NaN.
+     */
+    public void accept(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        this.count += 1;
+        if (value < this.min) {
+            this.min = value;
+        }
+        if (value > this.max) {
+            this.max = value;
+        }
+        append(0, value);
+        if (this.sizes[0] >= capacity(0)) {
+            compress();
+        }
+    }
+
+    /**
+     * Merge a sketch built over another sequence of values into this sketch.
+     *
+     * Both sketches should have the same accuracy parameter.
+     *
+     * @param that The other sketch.
+     * @return This sketch.
+     */
+    public QuantileSketch merge(QuantileSketch that) {
+        if (that.count == 0) {
+            return this;
+        }
+        for (int h = 0; h < that.sizes.length; ++h) {
+            while (h >= this.sizes.length) {
+                addLevel();
+            }
+            for (int i = 0; i < that.sizes[h]; ++i) {
+                append(h, that.levels[h][i]);
+            }
+        }
+        this.count += that.count;
+        this.min = Math.min(this.min, that.min);
+        this.max = Math.max(this.max, that.max);
+        compress();
+        return this;
+    }
+
+    /**
+     * Return the number of values added to the sketch, excluding NaN.
+     *
+     * @return The number of values.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Return the minimal value.
+     *
+     * @return The minimum, or NaN if the sketch is empty.
+     */
+    public double getMin() {
+        return this.count == 0 ? Double.NaN : this.min;
+    }
+
+    /**
+     * Return the maximal value.
+     *
+     * @return The maximum, or NaN if the sketch is empty.
+     */
+    public double getMax() {
+        return this.count == 0 ? Double.NaN : this.max;
+    }
+
+    /**
+     * Estimate a quantile.
+     *
+     * @param q The quantile, between 0 and 1.
+     * @return The estimated value, or NaN if the sketch is empty.
+     */
+    public double quantile(double q) {
+        return quantiles(q)[0];
+    }
+
+    /**
+     * Estimate several quantiles.
+     *
+     * @param qs The quantiles, between 0 and 1.
+     * @return The estimated values, in the same order, or NaN if the sketch
+     * is empty.
+     * @throws IllegalArgumentException if a quantile is not between 0 and 1
+     */
+    public double[] quantiles(double... qs) {
+        for (double q : qs) {
+            if (!(q >= 0.0 && q <= 1.0)) {
+                throw new IllegalArgumentException(
+                        "Quantile must be between 0 and 1: " + q);
+            }
+        }
+        final double[] result = new double[qs.length];
+        if (this.count == 0) {
+            Arrays.fill(result, Double.NaN);
+            return result;
+        }
+
+        // Sort every level, then merge them by increasing value while
+        // accumulating the weight of each level.
+        final int levelCount = this.sizes.length;
+        final double[][] sorted = new double[levelCount][];
+        for (int h = 0; h < levelCount; ++h) {
+            sorted[h] = Arrays.copyOf(this.levels[h], this.sizes[h]);
+            Arrays.sort(sorted[h]);
+        }
+        final int[] heads = new int[levelCount];
+        final Integer[] order = new Integer[qs.length];
+        for (int q = 0; q < qs.length; ++q) {
+            order[q] = q;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(qs[a], qs[b]));
+
+        long cumulative = 0;
+        double current = this.min;
+        for (int q : order) {
+            final double rank = qs[q] * this.count;
+            while (cumulative < rank) {
+                int next = -1;
+                for (int h = 0; h < levelCount; ++h) {
+                    if (heads[h] < sorted[h].length
+                            && (next < 0 || sorted[h][heads[h]] < sorted[next][heads[next]])) {
+                        next = h;
+                    }
+                }
+                if (next < 0) {
+                    current = this.max;
+                    break;
+                }
+                current = sorted[next][heads[next]];
+                heads[next] += 1;
+                cumulative += 1L << next;
+            }
+            result[q] = qs[q] == 1.0 ? this.max : current;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileSketch{"
+                + "k=" + this.k
+                + ", count=" + this.count
+                + ", levels=" + this.sizes.length + '}';
+    }
+
+    private int capacity(int level) {
+        final int depth = this.sizes.length - 1 - level;
+        return Math.max(MIN_CAPACITY,
+                (int) Math.ceil(this.k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void compress() {
+        int level = 0;
+        while (level < this.sizes.length) {
+            if (this.sizes[level] >= capacity(level)) {
+                if (level + 1 == this.sizes.length) {
+                    addLevel();
+                }
+                compact(level);
+            }
+            level += 1;
+        }
+    }
+
+    private void compact(int level) {
+        final double[] buffer = this.levels[level];
+        final int size = this.sizes[level];
+        Arrays.sort(buffer, 0, size);
+        // Keep one value at this level if the size is odd, so that the total
+        // weight is preserved exactly.
+        final int start = size % 2;
+        final int offset = this.offsets[level];
+        this.offsets[level] = 1 - offset;
+        for (int i = start + offset; i < size; i += 2) {
+            append(level + 1, buffer[i]);
+        }
+        this.sizes[level] = start;
+    }
+
+    private void append(int level, double value) {
+        double[] buffer = this.levels[level];
+        if (this.sizes[level] == buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, MIN_CAPACITY));
+            this.levels[level] = buffer;
+        }
+        buffer[this.sizes[level]] = value;
+        this.sizes[level] += 1;
+    }
+
+    private void addLevel() {
+        final int n = this.sizes.length;
+        this.levels = Arrays.copyOf(this.levels, n + 1);
+        this.levels[n] = new double[this.k];
+        this.sizes = Arrays.copyOf(this.sizes, n + 1);
+        this.offsets = Arrays.copyOf(this.offsets, n + 1);
+    }
+
+    private final int k;
+    private double[][] levels;
+    private int[] sizes;
+    private int[] offsets;
+    private long count;
+    private double min;
+    private double max;
+
+    static final int DEFAULT_K = 200;
+    private static final int MIN_CAPACITY = 8;
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+}
@@ -0,0 +1,88 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+/**
+ * The count, sum, minimum and maximum of the values in a time range.
+ *
+ * Missing values (NaN) are not counted. An empty range has count and sum
+ * zero and NaN mean, minimum and maximum.
+ *
+ * @author cgim
+ */
+public class RangeAggregate {
+
+    RangeAggregate(long count, double sum, double min, double max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Return the number of values.
+     *
+     * @return The number of values.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Return the sum of values.
+     *
+     * @return The sum.
+     */
+    public double getSum() {
+        return this.sum;
+    }
+
+    /**
+     * Return the mean of values.
+     *
+     * @return The mean, or NaN if the range is empty.
+     */
+    public double getMean() {
+        return Aggregation.MEAN.finish(this.count, this.sum, this.min, this.max);
+    }
+
+    /**
+     * Return the minimal value.
+     *
+     * @return The minimum, or NaN if the range is empty.
+     */
+    public double getMin() {
+        return Aggregation.MIN.finish(this.count, this.sum, this.min, this.max);
+    }
+
+    /**
+     * Return the maximal value.
+     *
+     * @return The maximum, or NaN if the range is empty.
+     */
+    public double getMax() {
+        return Aggregation.MAX.finish(this.count, this.sum, this.min, this.max);
+    }
+
+    /**
+     * Return an aggregation of the values.
+     *
+     * @param aggregation The aggregation.
+     * @return The aggregated value.
+     */
+    public double get(Aggregation aggregation) {
+        return aggregation.finish(this.count, this.sum, this.min, this.max);
+    }
+
+    @Override
+    public String toString() {
+        return "RangeAggregate{"
+                + "count=" + this.count
+                + ", sum=" + this.sum
+                + ", min=" + getMin()
+                + ", max=" + getMax() + '}';
+    }
+
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+}
@@ -0,0 +1,145 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.Instant;
+
+/**
+ * A static index answering count, sum, minimum and maximum over arbitrary
+ * ranges of a time series in logarithmic time.
+ *
+ * Sums, minima and maxima are stored in segment trees over primitive arrays,
+ * and counts of valid values as prefix sums, so the index is built in linear
+ * time. Time ranges are mapped to positions by binary search.
+ *
+ * The index is a snapshot: it is not updated when the time series changes.
+ * See {@link RollupIndex} for an index supporting appends.
+ *
+ * <pre>
+ * {@code
+ * RangeQueryIndex index = timeSeries.rangeQueryIndex();
+ * for (Instant t : candidates) {
+ *     RangeAggregate window = index.aggregate(t.minus(width), t);
+ *     ...
+ * }
+ * }
+ * </pre>
+ *
+ * @author cgim
+ */
+public class RangeQueryIndex {
+
+    /**
+     * Build an index over a time series.
+     *
+     * @param timeSeries The time series, sorted by datetime.
+     */
+    public RangeQueryIndex(TimeSeries<? extends Number> timeSeries) {
+        this(timeSeries.toEpochMillisArray(), timeSeries.toDoubleArray());
+    }
+
+    /**
+     * Build an index over readings.
+     *
+     * @param datetimes The datetimes, as milliseconds since the epoch, sorted.
+     * @param values The values.
+     */
+    RangeQueryIndex(long[] datetimes, double[] values) {
+        final int n = values.length;
+        this.datetimes = datetimes;
+        this.counts = new int[n + 1];
+        this.sums = new double[2 * n];
+        this.mins = new double[2 * n];
+        this.maxs = new double[2 * n];
+        for (int i = 0; i < n; ++i) {
+            final double value = values[i];
+            final boolean valid = value == value;
+            this.counts[i + 1] = this.counts[i] + (valid ? 1 : 0);
+            this.sums[n + i] = valid ? value : 0.0;
+            this.mins[n + i] = valid ? value : Double.POSITIVE_INFINITY;
+            this.maxs[n + i] = valid ? value : Double.NEGATIVE_INFINITY;
+        }
+        for (int i = n - 1; i > 0; --i) {
+            this.sums[i] = this.sums[2 * i] + this.sums[2 * i + 1];
+            this.mins[i] = Math.min(this.mins[2 * i], this.mins[2 * i + 1]);
+            this.maxs[i] = Math.max(this.maxs[2 * i], this.maxs[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Return the number of readings in the index.
+     *
+     * @return The number of readings.
+     */
+    public int size() {
+        return this.datetimes.length;
+    }
+
+    /**
+     * Return the position of the first reading at or after a datetime.
+     *
+     * @param datetime The datetime.
+     * @return A position between 0 and the size of the index.
+     */
+    public int indexOf(Instant datetime) {
+        return RollupIndex.lowerBound(
+                this.datetimes, this.datetimes.length, datetime.toEpochMilli());
+    }
+
+    /**
+     * Aggregate the readings in a time range.
+     *
+     * @param startTime The start of the range (inclusive).
+     * @param stopTime The end of the range (exclusive).
+     * @return The aggregate of the range.
+     */
+    public RangeAggregate aggregate(Instant startTime, Instant stopTime) {
+        final int from = indexOf(startTime);
+        final int to = indexOf(stopTime);
+        return aggregate(from, Math.max(from, to));
+    }
+
+    /**
+     * Aggregate the readings between two positions.
+     *
+     * @param from The first position (inclusive).
+     * @param to The last position (exclusive).
+     * @return The aggregate of the range.
+     * @throws IndexOutOfBoundsException if the positions are not a valid range
+     */
+    public RangeAggregate aggregate(int from, int to) {
+        final int n = this.datetimes.length;
+        if (from < 0 || to > n || from > to) {
+            throw new IndexOutOfBoundsException(
+                    "Range: [" + from + ", " + to + "), Size: " + n);
+        }
+        double sum = 0.0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int l = from + n, r = to + n; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                sum += this.sums[l];
+                min = Math.min(min, this.mins[l]);
+                max = Math.max(max, this.maxs[l]);
+                l += 1;
+            }
+            if ((r & 1) == 1) {
+                r -= 1;
+                sum += this.sums[r];
+                min = Math.min(min, this.mins[r]);
+                max = Math.max(max, this.maxs[r]);
+            }
+        }
+        return new RangeAggregate(
+                this.counts[to] - this.counts[from], sum, min, max);
+    }
+
+    @Override
+    public String toString() {
+        return "RangeQueryIndex{" + "size=" + this.datetimes.length + '}';
+    }
+
+    private final long[] datetimes;
+    private final int[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+}
@@ -0,0 +1,338 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A fixed-capacity time series of double values keeping only the most recent
+ * readings.
+ *
+ * The readings are stored in a circular buffer, so appending a reading and
+ * evicting the oldest one are constant time operations. The time series can
+ * be bounded by number of readings, by duration, or by both.
+ *
+ * <pre>
+ * {@code
+ * RingTimeSeries window = new RingTimeSeries(3600, Duration.ofHours(1));
+ * window.addReading(Instant.now(), 24.6);
+ * TimeSeries<Number> resampled = window.resample(Duration.ofMinutes(1));
+ * }
+ * </pre>
+ *
+ * @author cgim
+ */
+public class RingTimeSeries implements Iterable<Reading<Double>> {
+
+    /**
+     * Create an empty time series bounded by number of readings.
+     *
+     * @param capacity Maximal number of readings.
+     */
+    public RingTimeSeries(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Create an empty time series bounded by number of readings and by
+     * duration.
+     *
+     * When a reading is appended, all readings older than the new reading
+     * minus the window are evicted.
+     *
+     * @param capacity Maximal number of readings.
+     * @param window Maximal time span between the oldest and newest readings.
+     */
+    public RingTimeSeries(int capacity, Duration window) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "Capacity must be positive: " + capacity);
+        }
+        this.datetimes = new long[capacity];
+        this.values = new double[capacity];
+        this.windowMillis = window == null ? -1 : window.toMillis();
+        this.head = 0;
+        this.count = 0;
+    }
+
+    /**
+     * Return the size of the time series.
+     *
+     * @return The size of the time series.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Return the maximal number of readings.
+     *
+     * @return The capacity of the time series.
+     */
+    public int capacity() {
+        return this.datetimes.length;
+    }
+
+    /**
+     * Append a reading to the time series, evicting old readings if needed.
+     *
+     * Note: No checking on the index is performed, make sure that the index
+     * stays monotonous increasing.
+     *
+     * @param datetime The datetime.
+     * @param value The value.
+     */
+    public void addReading(Instant datetime, double value) {
+        addReading(datetime.toEpochMilli(), value);
+    }
+
+    /**
+     * Append a reading to the time series, evicting old readings if needed.
+     *
+     * @param epochMillis The datetime as milliseconds since the epoch.
+     * @param value The value.
+     */
+    public void addReading(long epochMillis, double value) {
+        if (this.windowMillis >= 0) {
+            final long oldest = epochMillis - this.windowMillis;
+            while (this.count > 0 && this.datetimes[this.head] < oldest) {
+                evict();
+            }
+        }
+        if (this.count == this.datetimes.length) {
+            evict();
+        }
+        final int tail = physical(this.count);
+        this.datetimes[tail] = epochMillis;
+        this.values[tail] = value;
+        this.count += 1;
+    }
+
+    /**
+     * Append a reading to the time series, evicting old readings if needed.
+     *
+     * @param reading The reading to append.
+     */
+    public void addReading(Reading<? extends Number> reading) {
+        addReading(reading.getDatetime(), reading.getValue().doubleValue());
+    }
+
+    /**
+     * Remove all readings.
+     */
+    public void clear() {
+        this.head = 0;
+        this.count = 0;
+    }
+
+    /**
+     * Return the datetime at a given position, as milliseconds since the
+     * epoch.
+     *
+     * Position 0 is the oldest reading.
+     *
+     * @param i The position.
+     * @return Milliseconds since the epoch.
+     */
+    public long getEpochMillis(int i) {
+        checkIndex(i);
+        return this.datetimes[physical(i)];
+    }
+
+    /**
+     * Return the value at a given position.
+     *
+     * Position 0 is the oldest reading.
+     *
+     * @param i The position.
+     * @return The value.
+     */
+    public double getDouble(int i) {
+        checkIndex(i);
+        return this.values[physical(i)];
+    }
+
+    /**
+     * Return a reading at a given position.
+     *
+     * Position 0 is the oldest reading.
+     *
+     * @param i The position.
+     * @return A reading.
+     */
+    public Reading<Double> getReading(int i) {
+        checkIndex(i);
+        final int j = physical(i);
+        return new Reading<>(
+                Instant.ofEpochMilli(this.datetimes[j]),
+                this.values[j],
+                Double.class);
+    }
+
+    /**
+     * Return a reading at the last position.
+     *
+     * @return A reading.
+     */
+    public Reading<Double> getLastReading() {
+        return getReading(this.count - 1);
+    }
+
+    /**
+     * Return the list of datetimes, from oldest to newest.
+     *
+     * @return A new list of datetimes.
+     */
+    public List<Instant> getDatetimes() {
+        List<Instant> result = new ArrayList<>(this.count);
+        for (int i = 0; i < this.count; ++i) {
+            result.add(Instant.ofEpochMilli(this.datetimes[physical(i)]));
+        }
+        return result;
+    }
+
+    /**
+     * Return the list of values, from oldest to newest.
+     *
+     * @return A new list of values.
+     */
+    public List<Double> getValues() {
+        List<Double> result = new ArrayList<>(this.count);
+        for (int i = 0; i < this.count; ++i) {
+            result.add(this.values[physical(i)]);
+        }
+        return result;
+    }
+
+    /**
+     * Copy the readings to a regular time series.
+     *
+     * @return A time series.
+     */
+    public TimeSeries<Double> toTimeSeries() {
+        return new TimeSeries<>(getDatetimes(), getValues(), Double.class);
+    }
+
+    /**
+     * Resample the time series keeping the same starting/ending times.
+     *
+     * @param duration The new step.
+     * @return A time series obtained by interpolating the readings with a new
+     * step.
+     * @see TimeSeries#resample(Duration)
+     */
+    public TimeSeries<Number> resample(Duration duration) {
+        return toTimeSeries().resample(duration);
+    }
+
+    /**
+     * Resample the time series keeping the same starting/ending times.
+     *
+     * @param step The new step in seconds.
+     * @return A time series obtained by interpolating the readings with a new
+     * step.
+     */
+    public TimeSeries<Number> resample(long step) {
+        return resample(Duration.ofSeconds(step));
+    }
+
+    /**
+     * Resample the time series.
+     *
+     * @param startTime New starting time (must be within the readings).
+     * @param stopTime New ending time (must be within the readings).
+     * @param step The new step.
+     * @return A time series obtained by interpolating the readings with a new
+     * starting/ending time and a new step.
+     * @see TimeSeries#resample(Instant, Instant, Duration)
+     */
+    public TimeSeries<Number> resample(
+            Instant startTime, Instant stopTime, Duration step) {
+        return toTimeSeries().resample(startTime, stopTime, step);
+    }
+
+    /**
+     * Perform an operation on every reading, from oldest to newest.
+     *
+     * @param action The operation.
+     */
+    public void forEach(LongDoubleConsumer action) {
+        for (int i = 0; i < this.count; ++i) {
+            final int j = physical(i);
+            action.accept(this.datetimes[j], this.values[j]);
+        }
+    }
+
+    /**
+     * Access the time series as a stream of readings.
+     *
+     * @return A stream of readings.
+     */
+    public Stream<Reading<Double>> stream() {
+        return StreamSupport.stream(this.spliterator(), false);
+    }
+
+    @Override
+    public Iterator<Reading<Double>> iterator() {
+        return new Iterator<Reading<Double>>() {
+            @Override
+            public boolean hasNext() {
+                return i < count;
+            }
+
+            @Override
+            public Reading<Double> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Reading<Double> reading = getReading(i);
+                i += 1;
+                return reading;
+            }
+            int i = 0;
+        };
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("[ ");
+        for (int i = 0; i < this.count; ++i) {
+            final int j = physical(i);
+            builder.append(Instant.ofEpochMilli(this.datetimes[j]));
+            builder.append(": ");
+            builder.append(this.values[j]);
+            builder.append(",\n  ");
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+
+    private void evict() {
+        this.head = physical(1);
+        this.count -= 1;
+    }
+
+    private int physical(int i) {
+        final int j = this.head + i;
+        return j < this.datetimes.length ? j : j - this.datetimes.length;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= this.count) {
+            throw new IndexOutOfBoundsException(
+                    "Index: " + i + ", Size: " + this.count);
+        }
+    }
+
+    private final long[] datetimes;
+    private final double[] values;
+    private final long windowMillis;
+    private int head;
+    private int count;
+}
@@ -0,0 +1,419 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A pyramid of summaries answering count, sum, minimum and maximum over
+ * arbitrary time ranges without rescanning the readings.
+ *
+ * Readings are summarized at several resolutions, by default 1 minute,
+ * 1 hour and 1 day. Each resolution must be a multiple of the previous one, so
+ * that buckets are nested, and buckets are aligned on the epoch. A range
+ * query uses the coarsest buckets fully inside the range, through a segment
+ * tree, and finer buckets only at its edges, so it touches a logarithmic
+ * number of summaries plus at most the ratio between consecutive resolutions
+ * at each edge. Summaries are maintained incrementally as readings are
+ * appended.
+ *
+ * Only non-empty buckets are stored, so memory grows with the number of
+ * readings rather than with the time span they cover, and the readings
+ * themselves are not kept. A range is therefore resolved at the finest
+ * resolution: a reading is counted when the finest bucket holding it starts
+ * within the range. Queries are exact for ranges aligned on the finest
+ * resolution; use a resolution of 1 millisecond for exact queries on
+ * arbitrary ranges.
+ *
+ * <pre>
+ * {@code
+ * RollupIndex index = RollupIndex.of(timeSeries);
+ * RangeAggregate week = index.aggregate(monday, nextMonday);
+ * double peak = week.getMax();
+ * }
+ * </pre>
+ *
+ * @author cgim
+ */
+public class RollupIndex {
+
+    /**
+     * Create an empty index with resolutions of 1 minute, 1 hour and 1 day.
+     */
+    public RollupIndex() {
+        this(Duration.ofMinutes(1), Duration.ofHours(1), Duration.ofDays(1));
+    }
+
+    /**
+     * Create an empty index.
+     *
+     * @param resolutions The resolutions of the summaries, increasing, each a
+     * multiple of the previous one.
+     * @throws IllegalArgumentException if the resolutions are not nested
+     */
+    public RollupIndex(Duration... resolutions) {
+        if (resolutions.length == 0) {
+            throw new IllegalArgumentException("No resolution");
+        }
+        this.levels = new Level[resolutions.length];
+        long previous = 1;
+        for (int l = 0; l < resolutions.length; ++l) {
+            final long resolution = resolutions[l].toMillis();
+            if (resolution <= 0 || l > 0
+                    && (resolution <= previous || resolution % previous != 0)) {
+                throw new IllegalArgumentException(
+                        "Resolution must be a positive multiple of the previous one: "
+                        + resolutions[l]);
+            }
+            this.levels[l] = new Level(resolution, l == resolutions.length - 1);
+            previous = resolution;
+        }
+        this.size = 0;
+        this.last = Long.MIN_VALUE;
+    }
+
+    /**
+     * Build an index with the default resolutions from a time series.
+     *
+     * @param timeSeries The time series.
+     * @return A new index.
+     */
+    public static RollupIndex of(TimeSeries<? extends Number> timeSeries) {
+        RollupIndex index = new RollupIndex();
+        index.addReadings(timeSeries);
+        return index;
+    }
+
+    /**
+     * Append a reading to the index.
+     *
+     * @param datetime The datetime.
+     * @param value The value, ignored if NaN.
+     * @throws IllegalArgumentException if the datetime is before the last one
+     */
+    public void addReading(Instant datetime, double value) {
+        addReading(datetime.toEpochMilli(), value);
+    }
+
+    /**
+     * Append a reading to the index.
+     *
+     * @param epochMillis The datetime as milliseconds since the epoch.
+     * @param value The value, ignored if NaN.
+     * @throws IllegalArgumentException if the datetime is before the last one
+     */
+    public void addReading(long epochMillis, double value) {
+        if (epochMillis < this.last) {
+            throw new IllegalArgumentException(
+                    "Readings must be added in chronological order: "
+                    + Instant.ofEpochMilli(epochMillis)
+                    + " is before " + Instant.ofEpochMilli(this.last));
+        }
+        this.last = epochMillis;
+        if (value != value) {
+            return;
+        }
+        this.size += 1;
+        for (Level level : this.levels) {
+            level.accept(Math.floorDiv(epochMillis, level.resolution), value);
+        }
+    }
+
+    /**
+     * Append all the readings of a time series to the index.
+     *
+     * @param timeSeries The time series.
+     * @throws IllegalArgumentException if the readings are not in
+     * chronological order
+     */
+    public void addReadings(TimeSeries<? extends Number> timeSeries) {
+        timeSeries.forEach(this::addReading);
+    }
+
+    /**
+     * Return the number of valid readings in the index.
+     *
+     * @return The number of readings.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Return the resolutions of the summaries.
+     *
+     * @return A new list of resolutions, from finest to coarsest.
+     */
+    public List<Duration> getResolutions() {
+        List<Duration> result = new ArrayList<>(this.levels.length);
+        for (Level level : this.levels) {
+            result.add(Duration.ofMillis(level.resolution));
+        }
+        return result;
+    }
+
+    /**
+     * Aggregate the readings in a time range, resolved at the finest
+     * resolution.
+     *
+     * @param startTime The start of the range (inclusive).
+     * @param stopTime The end of the range (exclusive).
+     * @return The aggregate of the range.
+     */
+    public RangeAggregate aggregate(Instant startTime, Instant stopTime) {
+        return aggregate(startTime.toEpochMilli(), stopTime.toEpochMilli());
+    }
+
+    /**
+     * Aggregate the readings in a time range, resolved at the finest
+     * resolution.
+     *
+     * @param start The start of the range (inclusive), as milliseconds since
+     * the epoch.
+     * @param stop The end of the range (exclusive), as milliseconds since the
+     * epoch.
+     * @return The aggregate of the range.
+     */
+    public RangeAggregate aggregate(long start, long stop) {
+        final Totals totals = new Totals();
+        final long resolution = this.levels[0].resolution;
+        final long first = ceilDiv(start, resolution);
+        final long end = ceilDiv(stop, resolution);
+        if (this.size > 0 && first < end) {
+            accumulate(0, first, end, totals);
+        }
+        return totals.toAggregate();
+    }
+
+    @Override
+    public String toString() {
+        return "RollupIndex{"
+                + "resolutions=" + getResolutions()
+                + ", size=" + this.size + '}';
+    }
+
+    /**
+     * Return the first position of a sorted array holding a value greater
+     * than or equal to a key.
+     *
+     * @param array The sorted array.
+     * @param length The number of elements to search.
+     * @param key The key.
+     * @return A position between 0 and length.
+     */
+    static int lowerBound(long[] array, int length, long key) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (array[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void accumulate(int l, long from, long to, Totals totals) {
+        final Level level = this.levels[l];
+        if (l + 1 < this.levels.length) {
+            final long ratio = this.levels[l + 1].resolution / level.resolution;
+            final long parentFrom = ceilDiv(from, ratio);
+            final long parentTo = Math.floorDiv(to, ratio);
+            if (parentFrom < parentTo) {
+                level.sum(from, parentFrom * ratio, totals);
+                level.sum(parentTo * ratio, to, totals);
+                accumulate(l + 1, parentFrom, parentTo, totals);
+                return;
+            }
+        }
+        level.sum(from, to, totals);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    /**
+     * The non-empty buckets at one resolution, by increasing bucket number.
+     * The coarsest level also maintains a segment tree over its buckets.
+     */
+    private static class Level {
+
+        Level(long resolution, boolean indexed) {
+            this.resolution = resolution;
+            this.indexed = indexed;
+            this.buckets = new long[DEFAULT_CAPACITY];
+            this.count = new long[DEFAULT_CAPACITY];
+            this.sum = new double[DEFAULT_CAPACITY];
+            this.min = new double[DEFAULT_CAPACITY];
+            this.max = new double[DEFAULT_CAPACITY];
+            this.size = 0;
+            this.tree = indexed ? new Tree(DEFAULT_CAPACITY) : null;
+        }
+
+        void accept(long bucket, double value) {
+            if (this.size == 0 || this.buckets[this.size - 1] != bucket) {
+                if (this.size == this.buckets.length) {
+                    final int capacity = 2 * this.size;
+                    this.buckets = Arrays.copyOf(this.buckets, capacity);
+                    this.count = Arrays.copyOf(this.count, capacity);
+                    this.sum = Arrays.copyOf(this.sum, capacity);
+                    this.min = Arrays.copyOf(this.min, capacity);
+                    this.max = Arrays.copyOf(this.max, capacity);
+                }
+                this.buckets[this.size] = bucket;
+                this.count[this.size] = 0;
+                this.sum[this.size] = 0.0;
+                this.min[this.size] = Double.POSITIVE_INFINITY;
+                this.max[this.size] = Double.NEGATIVE_INFINITY;
+                this.size += 1;
+            }
+            final int b = this.size - 1;
+            this.count[b] += 1;
+            this.sum[b] += value;
+            if (value < this.min[b]) {
+                this.min[b] = value;
+            }
+            if (value > this.max[b]) {
+                this.max[b] = value;
+            }
+            if (this.indexed) {
+                if (b >= this.tree.capacity) {
+                    this.tree = new Tree(2 * this.tree.capacity);
+                    for (int i = 0; i < this.size; ++i) {
+                        this.tree.set(i, this.count[i], this.sum[i], this.min[i], this.max[i]);
+                    }
+                    this.tree.build();
+                } else {
+                    this.tree.set(b, this.count[b], this.sum[b], this.min[b], this.max[b]);
+                    this.tree.update(b);
+                }
+            }
+        }
+
+        void sum(long from, long to, Totals totals) {
+            final int first = lowerBound(this.buckets, this.size, from);
+            final int end = lowerBound(this.buckets, this.size, to);
+            if (this.indexed) {
+                this.tree.query(first, end, totals);
+                return;
+            }
+            for (int b = first; b < end; ++b) {
+                totals.accept(this.count[b], this.sum[b], this.min[b], this.max[b]);
+            }
+        }
+
+        final long resolution;
+        final boolean indexed;
+        long[] buckets;
+        long[] count;
+        double[] sum;
+        double[] min;
+        double[] max;
+        int size;
+        Tree tree;
+    }
+
+    /**
+     * A segment tree over bucket positions, with leaves at positions
+     * {@code capacity} and above and node {@code i} summarizing nodes
+     * {@code 2 i} and {@code 2 i + 1}.
+     */
+    private static class Tree {
+
+        Tree(int capacity) {
+            this.capacity = capacity;
+            this.count = new long[2 * capacity];
+            this.sum = new double[2 * capacity];
+            this.min = new double[2 * capacity];
+            this.max = new double[2 * capacity];
+            Arrays.fill(this.min, Double.POSITIVE_INFINITY);
+            Arrays.fill(this.max, Double.NEGATIVE_INFINITY);
+        }
+
+        void set(int position, long count, double sum, double min, double max) {
+            final int node = this.capacity + position;
+            this.count[node] = count;
+            this.sum[node] = sum;
+            this.min[node] = min;
+            this.max[node] = max;
+        }
+
+        void update(int position) {
+            for (int node = (this.capacity + position) >>> 1; node > 0; node >>>= 1) {
+                combine(node);
+            }
+        }
+
+        void build() {
+            for (int node = this.capacity - 1; node > 0; --node) {
+                combine(node);
+            }
+        }
+
+        void query(int from, int to, Totals totals) {
+            int low = from + this.capacity;
+            int high = to + this.capacity;
+            while (low < high) {
+                if ((low & 1) == 1) {
+                    totals.accept(this.count[low], this.sum[low], this.min[low], this.max[low]);
+                    low += 1;
+                }
+                if ((high & 1) == 1) {
+                    high -= 1;
+                    totals.accept(this.count[high], this.sum[high], this.min[high], this.max[high]);
+                }
+                low >>>= 1;
+                high >>>= 1;
+            }
+        }
+
+        private void combine(int node) {
+            final int left = 2 * node;
+            final int right = left + 1;
+            this.count[node] = this.count[left] + this.count[right];
+            this.sum[node] = this.sum[left] + this.sum[right];
+            this.min[node] = Math.min(this.min[left], this.min[right]);
+            this.max[node] = Math.max(this.max[left], this.max[right]);
+        }
+
+        final int capacity;
+        final long[] count;
+        final double[] sum;
+        final double[] min;
+        final double[] max;
+    }
+
+    private static class Totals {
+
+        void accept(long count, double sum, double min, double max) {
+            this.count += count;
+            this.sum += sum;
+            if (min < this.min) {
+                this.min = min;
+            }
+            if (max > this.max) {
+                this.max = max;
+            }
+        }
+
+        RangeAggregate toAggregate() {
+            return new RangeAggregate(this.count, this.sum, this.min, this.max);
+        }
+
+        long count = 0;
+        double sum = 0.0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+    }
+
+    private final Level[] levels;
+    private int size;
+    private long last;
+
+    private static final int DEFAULT_CAPACITY = 16;
+}
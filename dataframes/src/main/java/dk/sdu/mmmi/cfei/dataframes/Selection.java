@@ -0,0 +1,289 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoublePredicate;
+
+/**
+ * A selection of rows of a data frame, stored as a bitmap over the rows.
+ *
+ * Selections are combined with {@link #and(Selection)},
+ * {@link #or(Selection)} and {@link #negate()}, and consumed directly by
+ * aggregation, derivation and export, which only visit the selected rows.
+ * Values are copied into a new data frame only by {@link #materialize()}.
+ *
+ * A selection refers to the rows of its data frame by position, so it should
+ * not be used after rows are added to the data frame.
+ *
+ * <pre>
+ * {@code
+ * Selection night = dataFrame.where(power, p -> p < 100.0)
+ *         .or(dataFrame.where(mode, "standby"));
+ * night.toCsv(writer);
+ * }
+ * </pre>
+ *
+ * @author cgim
+ */
+public class Selection {
+
+    Selection(DataFrame dataFrame, BitSet rows) {
+        this.dataFrame = dataFrame;
+        this.rows = rows;
+    }
+
+    /**
+     * Return the data frame whose rows are selected.
+     *
+     * @return The data frame.
+     */
+    public DataFrame getDataFrame() {
+        return this.dataFrame;
+    }
+
+    /**
+     * Return the number of selected rows.
+     *
+     * @return The number of selected rows.
+     */
+    public int count() {
+        return this.rows.cardinality();
+    }
+
+    /**
+     * Tell whether a row is selected.
+     *
+     * @param i The row index.
+     * @return True if the row is selected.
+     */
+    public boolean isSelected(int i) {
+        return this.rows.get(i);
+    }
+
+    /**
+     * Return the indices of the selected rows.
+     *
+     * @return A new array of row indices, in increasing order.
+     */
+    public int[] indices() {
+        return this.rows.stream().toArray();
+    }
+
+    /**
+     * Return the selected rows as a bitmap.
+     *
+     * @return A new bitmap.
+     */
+    public BitSet toBitSet() {
+        return (BitSet) this.rows.clone();
+    }
+
+    /**
+     * Keep the selected rows where the values of a column satisfy a
+     * predicate.
+     *
+     * Only the selected rows are tested, as primitive doubles, missing
+     * values being NaN.
+     *
+     * @param measure The column.
+     * @param predicate The predicate.
+     * @return A new selection.
+     * @throws IllegalArgumentException if the column does not exist
+     */
+    public Selection where(Measure measure, DoublePredicate predicate) {
+        final int column = this.dataFrame.columnIndex(measure);
+        if (column < 0) {
+            throw new IllegalArgumentException("Unknown column: " + measure);
+        }
+        final BitSet result = new BitSet(this.dataFrame.size());
+        for (int i = this.rows.nextSetBit(0); i >= 0; i = this.rows.nextSetBit(i + 1)) {
+            if (predicate.test(this.dataFrame.getDouble(column, i))) {
+                result.set(i);
+            }
+        }
+        return new Selection(this.dataFrame, result);
+    }
+
+    /**
+     * Keep the selected rows where a column equals a given value.
+     *
+     * @param measure The column.
+     * @param value The value, or null for missing values.
+     * @return A new selection.
+     * @throws IllegalArgumentException if the column does not exist
+     */
+    public Selection where(Measure measure, String value) {
+        return and(this.dataFrame.where(measure, value));
+    }
+
+    /**
+     * Select the rows selected by both selections.
+     *
+     * @param that The other selection, over the same data frame.
+     * @return A new selection.
+     * @throws IllegalArgumentException if the selections are over different
+     * data frames
+     */
+    public Selection and(Selection that) {
+        checkSameDataFrame(that);
+        final BitSet result = toBitSet();
+        result.and(that.rows);
+        return new Selection(this.dataFrame, result);
+    }
+
+    /**
+     * Select the rows selected by either selection.
+     *
+     * @param that The other selection, over the same data frame.
+     * @return A new selection.
+     * @throws IllegalArgumentException if the selections are over different
+     * data frames
+     */
+    public Selection or(Selection that) {
+        checkSameDataFrame(that);
+        final BitSet result = toBitSet();
+        result.or(that.rows);
+        return new Selection(this.dataFrame, result);
+    }
+
+    /**
+     * Select the rows not selected by this selection.
+     *
+     * @return A new selection.
+     */
+    public Selection negate() {
+        final BitSet result = toBitSet();
+        result.flip(0, this.dataFrame.size());
+        return new Selection(this.dataFrame, result);
+    }
+
+    /**
+     * Return the selected values of a column as an array of doubles.
+     *
+     * @param measure The column.
+     * @return A new array of values, one per selected row.
+     * @throws IllegalArgumentException if the column does not exist
+     */
+    public double[] getDoubleColumn(Measure measure) {
+        final int column = this.dataFrame.columnIndex(measure);
+        if (column < 0) {
+            throw new IllegalArgumentException("Unknown column: " + measure);
+        }
+        final double[] result = new double[count()];
+        int j = 0;
+        for (int i = this.rows.nextSetBit(0); i >= 0; i = this.rows.nextSetBit(i + 1)) {
+            result[j] = this.dataFrame.getDouble(column, i);
+            j += 1;
+        }
+        return result;
+    }
+
+    /**
+     * Compute the summary statistics of every numeric column over the
+     * selected rows.
+     *
+     * @return The summary statistics by column, in column order.
+     * @see DataFrame#describe()
+     */
+    public Map<Measure, SummaryStatistics> describe() {
+        return this.dataFrame.describe(this.rows);
+    }
+
+    /**
+     * Group the selected rows by a calendar key in UTC and aggregate every
+     * numeric column.
+     *
+     * @param key The calendar key.
+     * @param aggregations The aggregations to compute.
+     * @return The aggregated values per key.
+     * @see DataFrame#groupBy(CalendarKey, ZoneId, Aggregation...)
+     */
+    public CalendarProfile groupBy(CalendarKey key, Aggregation... aggregations) {
+        return groupBy(key, ZoneOffset.UTC, aggregations);
+    }
+
+    /**
+     * Group the selected rows by a calendar key and aggregate every numeric
+     * column.
+     *
+     * @param key The calendar key.
+     * @param zone The time zone where the key is computed.
+     * @param aggregations The aggregations to compute.
+     * @return The aggregated values per key.
+     * @see DataFrame#groupBy(CalendarKey, ZoneId, Aggregation...)
+     */
+    public CalendarProfile groupBy(CalendarKey key, ZoneId zone, Aggregation... aggregations) {
+        return this.dataFrame.groupBy(this.rows, key, zone, aggregations);
+    }
+
+    /**
+     * Group the selected rows by the values of a column and aggregate every
+     * numeric column.
+     *
+     * @param measure The column to group by.
+     * @param aggregation The aggregation to compute.
+     * @return The aggregated values of every numeric column, per value of the
+     * grouping column.
+     * @see DataFrame#groupBy(Measure, Aggregation)
+     */
+    public Map<String, Map<Measure, Double>> groupBy(Measure measure, Aggregation aggregation) {
+        return this.dataFrame.groupBy(this.rows, measure, aggregation);
+    }
+
+    /**
+     * Add a new column to the data frame, computed from an expression over
+     * the selected rows.
+     *
+     * The other rows are set to NaN.
+     *
+     * @param name The name of the new column.
+     * @param expression The expression.
+     * @throws IllegalArgumentException if the expression is not valid or
+     * references an unknown column
+     * @see DataFrame#derive(String, String)
+     */
+    public void derive(String name, String expression) {
+        Map<String, String> expressions = new LinkedHashMap<>();
+        expressions.put(name, expression);
+        this.dataFrame.derive(expressions, this.rows);
+    }
+
+    /**
+     * Write the selected rows as CSV.
+     *
+     * @param out The output.
+     * @throws IOException if writing fails
+     * @see DataFrame#toCsv(Appendable)
+     */
+    public void toCsv(Appendable out) throws IOException {
+        this.dataFrame.toCsv(out, this.rows);
+    }
+
+    /**
+     * Copy the selected rows into a new data frame.
+     *
+     * @return A new data frame.
+     */
+    public DataFrame materialize() {
+        return this.dataFrame.materialize(this.rows);
+    }
+
+    @Override
+    public String toString() {
+        return "Selection{" + "size=" + this.dataFrame.size() + ", selected=" + count() + '}';
+    }
+
+    private void checkSameDataFrame(Selection that) {
+        if (this.dataFrame != that.dataFrame) {
+            throw new IllegalArgumentException(
+                    "Selections are over different data frames");
+        }
+    }
+
+    private final DataFrame dataFrame;
+    private final BitSet rows;
+}
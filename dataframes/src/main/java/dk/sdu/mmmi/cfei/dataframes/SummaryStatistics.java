@@ -0,0 +1,162 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+/**
+ * Summary statistics of a sequence of values: count, mean, variance, minimum,
+ * maximum and number of NaN values.
+ *
+ * Values are accumulated in a single pass with Welford's algorithm, which is
+ * numerically stable. Statistics computed over disjoint sequences can be
+ * merged, so that long sequences can be processed in parallel chunks.
+ *
+ * @author cgim
+ */
+public class SummaryStatistics {
+
+    /**
+     * Create empty statistics.
+     */
+    public SummaryStatistics() {
+        this.count = 0;
+        this.nanCount = 0;
+        this.mean = 0.0;
+        this.m2 = 0.0;
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Add a value to the statistics.
+     *
+     * NaN values are only counted by {@link #getNanCount()}.
+     *
+     * @param value The value.
+     */
+    public void accept(double value) {
+        if (Double.isNaN(value)) {
+            this.nanCount += 1;
+            return;
+        }
+        this.count += 1;
+        final double delta = value - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (value - this.mean);
+        if (value < this.min) {
+            this.min = value;
+        }
+        if (value > this.max) {
+            this.max = value;
+        }
+    }
+
+    /**
+     * Merge statistics computed over another sequence of values into these
+     * statistics.
+     *
+     * @param that The other statistics.
+     * @return These statistics.
+     */
+    public SummaryStatistics merge(SummaryStatistics that) {
+        this.nanCount += that.nanCount;
+        if (that.count == 0) {
+            return this;
+        }
+        if (this.count == 0) {
+            this.count = that.count;
+            this.mean = that.mean;
+            this.m2 = that.m2;
+            this.min = that.min;
+            this.max = that.max;
+            return this;
+        }
+        final long total = this.count + that.count;
+        final double delta = that.mean - this.mean;
+        this.mean += delta * that.count / total;
+        this.m2 += that.m2 + delta * delta * this.count * that.count / total;
+        this.count = total;
+        this.min = Math.min(this.min, that.min);
+        this.max = Math.max(this.max, that.max);
+        return this;
+    }
+
+    /**
+     * Return the number of values, excluding NaN.
+     *
+     * @return The number of values.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Return the number of NaN values.
+     *
+     * @return The number of NaN values.
+     */
+    public long getNanCount() {
+        return this.nanCount;
+    }
+
+    /**
+     * Return the mean.
+     *
+     * @return The mean, or NaN if there are no values.
+     */
+    public double getMean() {
+        return this.count == 0 ? Double.NaN : this.mean;
+    }
+
+    /**
+     * Return the sample variance.
+     *
+     * @return The sample variance, or NaN if there are less than two values.
+     */
+    public double getVariance() {
+        return this.count < 2 ? Double.NaN : this.m2 / (this.count - 1);
+    }
+
+    /**
+     * Return the sample standard deviation.
+     *
+     * @return The sample standard deviation, or NaN if there are less than two
+     * values.
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Return the minimum.
+     *
+     * @return The minimum, or NaN if there are no values.
+     */
+    public double getMin() {
+        return this.count == 0 ? Double.NaN : this.min;
+    }
+
+    /**
+     * Return the maximum.
+     *
+     * @return The maximum, or NaN if there are no values.
+     */
+    public double getMax() {
+        return this.count == 0 ? Double.NaN : this.max;
+    }
+
+    @Override
+    public String toString() {
+        return "SummaryStatistics{"
+                + "count=" + getCount()
+                + ", nanCount=" + getNanCount()
+                + ", mean=" + getMean()
+                + ", std=" + getStandardDeviation()
+                + ", min=" + getMin()
+                + ", max=" + getMax() + '}';
+    }
+
+    private long count;
+    private long nanCount;
+    private double mean;
+    private double m2;
+    private double min;
+    private double max;
+}
@@ -0,0 +1,198 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The chronological order of a sequence of datetimes, as a permutation of
+ * their positions and the runs of equal datetimes in that order.
+ *
+ * The permutation is computed once on primitive epoch milliseconds by a
+ * stable merge sort, so datetimes which are equal keep their order of
+ * arrival, then applied to every column.
+ *
+ * @author cgim
+ */
+class TimeOrder {
+
+    /**
+     * Sort a sequence of datetimes.
+     *
+     * @param epochMillis The datetimes, as milliseconds since the epoch.
+     */
+    TimeOrder(long[] epochMillis) {
+        final int n = epochMillis.length;
+        this.order = new int[n];
+        for (int i = 0; i < n; ++i) {
+            this.order[i] = i;
+        }
+        boolean sorted = true;
+        for (int i = 1; i < n && sorted; ++i) {
+            sorted = epochMillis[i - 1] <= epochMillis[i];
+        }
+        if (!sorted) {
+            sort(epochMillis, this.order, this.order.clone(), 0, n);
+        }
+
+        final int[] starts = new int[n + 1];
+        int runs = 0;
+        for (int i = 0; i < n; ++i) {
+            if (i == 0 || epochMillis[this.order[i]] != epochMillis[this.order[i - 1]]) {
+                starts[runs] = i;
+                runs += 1;
+            }
+        }
+        starts[runs] = n;
+        this.starts = Arrays.copyOf(starts, runs + 1);
+    }
+
+    /**
+     * Return the positions in chronological order.
+     *
+     * @return The permutation, not to be modified.
+     */
+    int[] sorted() {
+        return this.order;
+    }
+
+    /**
+     * Return the number of distinct datetimes.
+     *
+     * @return The number of runs of equal datetimes.
+     */
+    int runs() {
+        return this.starts.length - 1;
+    }
+
+    /**
+     * Return, for every distinct datetime in chronological order, the
+     * position of the reading to keep.
+     *
+     * @param policy The policy, first or last.
+     * @return An array of positions.
+     */
+    int[] representatives(Deduplication policy) {
+        final int[] result = new int[runs()];
+        for (int r = 0; r < result.length; ++r) {
+            result[r] = policy == Deduplication.FIRST
+                    ? this.order[this.starts[r]]
+                    : this.order[this.starts[r + 1] - 1];
+        }
+        return result;
+    }
+
+    /**
+     * Compute the mean of the values of every run of equal datetimes.
+     *
+     * Runs of a single reading keep their value unchanged.
+     *
+     * @param values The values, in their original order.
+     * @param type The type of the values.
+     * @return A new list of values, one per distinct datetime.
+     */
+    List<Number> means(List<? extends Number> values, Class<?> type) {
+        final List<Number> result = new ArrayList<>(runs());
+        for (int r = 0; r < runs(); ++r) {
+            final int from = this.starts[r];
+            final int to = this.starts[r + 1];
+            if (to - from == 1) {
+                result.add(values.get(this.order[from]));
+                continue;
+            }
+            double sum = 0.0;
+            int count = 0;
+            for (int i = from; i < to; ++i) {
+                final double value = ValidityMask.toDouble(values.get(this.order[i]));
+                if (value == value) {
+                    sum += value;
+                    count += 1;
+                }
+            }
+            result.add(convert(count == 0 ? Double.NaN : sum / count, type));
+        }
+        return result;
+    }
+
+    /**
+     * Pick values at given positions.
+     *
+     * @param <T> The value type.
+     * @param values The values.
+     * @param positions The positions.
+     * @param result The list where values are added.
+     * @return The list of values.
+     */
+    static <T> List<T> pick(List<T> values, int[] positions, List<T> result) {
+        for (int i : positions) {
+            result.add(values.get(i));
+        }
+        return result;
+    }
+
+    private static Number convert(double value, Class<?> type) {
+        if (type == Float.class) {
+            return (float) value;
+        }
+        if (type == Double.class || type == Number.class) {
+            return value;
+        }
+        if (value != value) {
+            return null;
+        }
+        if (type == Long.class) {
+            return Math.round(value);
+        }
+        if (type == Integer.class) {
+            return (int) Math.round(value);
+        }
+        if (type == Short.class) {
+            return (short) Math.round(value);
+        }
+        if (type == Byte.class) {
+            return (byte) Math.round(value);
+        }
+        return value;
+    }
+
+    private static void sort(long[] keys, int[] order, int[] buffer, int from, int to) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            for (int i = from + 1; i < to; ++i) {
+                final int position = order[i];
+                final long key = keys[position];
+                int j = i - 1;
+                while (j >= from && keys[order[j]] > key) {
+                    order[j + 1] = order[j];
+                    j -= 1;
+                }
+                order[j + 1] = position;
+            }
+            return;
+        }
+        // Sort both halves of the buffer into the order array, then merge
+        // them back, alternating the roles of both arrays.
+        final int middle = (from + to) >>> 1;
+        sort(keys, buffer, order, from, middle);
+        sort(keys, buffer, order, middle, to);
+        if (keys[buffer[middle - 1]] <= keys[buffer[middle]]) {
+            System.arraycopy(buffer, from, order, from, to - from);
+            return;
+        }
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; ++i) {
+            if (right >= to || left < middle && keys[buffer[left]] <= keys[buffer[right]]) {
+                order[i] = buffer[left];
+                left += 1;
+            } else {
+                order[i] = buffer[right];
+                right += 1;
+            }
+        }
+    }
+
+    private final int[] order;
+    private final int[] starts;
+
+    private static final int INSERTION_THRESHOLD = 32;
+}
@@ -2,9 +2,14 @@ package dk.sdu.mmmi.cfei.dataframes;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -55,6 +60,48 @@ public class TimeSeries<T extends Number> implements Iterable<Reading<T>> {
         this.clazz = clazz;
     }
 
+    /**
+     * Create a read-only time series sharing a list of datetimes and a list
+     * of values.
+     *
+     * @param clazz Data type.
+     * @param datetimes A list of datetimes.
+     * @param values A list of values.
+     */
+    private TimeSeries(Class<T> clazz, List<Instant> datetimes, List<T> values) {
+        this.datetimes = Collections.unmodifiableList(datetimes);
+        this.values = Collections.unmodifiableList(values);
+        this.clazz = clazz;
+    }
+
+    /**
+     * Create a read-only view of a list of datetimes and a list of values.
+     *
+     * The lists are not copied, so the view reflects later changes to them.
+     *
+     * @param <S> The value type.
+     * @param datetimes A list of datetimes.
+     * @param values A list of values.
+     * @param clazz Data type.
+     * @return A time series which cannot be modified.
+     */
+    static <S extends Number> TimeSeries<S> view(
+            List<Instant> datetimes, List<S> values, Class<S> clazz) {
+        return new TimeSeries<>(clazz, datetimes, values);
+    }
+
+    /**
+     * Copy the time series.
+     *
+     * The copy is independent of this time series and can be modified, even
+     * if this time series is a read-only view.
+     *
+     * @return A new time series.
+     */
+    public TimeSeries<T> copy() {
+        return new TimeSeries<>(this.datetimes, this.values, this.clazz);
+    }
+
     /**
      * Return the size of the time series.
      *
@@ -83,6 +130,27 @@ public class TimeSeries<T extends Number> implements Iterable<Reading<T>> {
         return new Reading(this.datetimes.get(i), this.values.get(i), this.clazz);
     }
 
+    /**
+     * Return the datetime at a given position, as milliseconds since the
+     * epoch.
+     *
+     * @param i The position.
+     * @return Milliseconds since the epoch.
+     */
+    public long getEpochMillis(int i) {
+        return this.datetimes.get(i).toEpochMilli();
+    }
+
+    /**
+     * Return the value at a given position, converted to double.
+     *
+     * @param i The position.
+     * @return The value.
+     */
+    public double getDouble(int i) {
+        return ValidityMask.toDouble(this.values.get(i));
+    }
+
     /**
      * Return a reading at the last position.
      *
@@ -128,18 +196,41 @@ public class TimeSeries<T extends Number> implements Iterable<Reading<T>> {
     /**
      * Remove readings satisfying a predicate.
      *
+     * The predicate is evaluated on every reading first, then the remaining
+     * readings are compacted in a single pass.
+     *
      * @param predicate The predicate.
      */
     public void removeReadings(Predicate<Reading<T>> predicate) {
-        Iterator<Instant> ii = this.datetimes.iterator();
-        Iterator<T> iv = this.values.iterator();
-        while (ii.hasNext()) {
-            Reading reading = new Reading(ii.next(), iv.next(), this.clazz);
-            if (predicate.test(reading)) {
-                ii.remove();
-                iv.remove();
+        final int n = this.size();
+        final BitSet removed = new BitSet(n);
+        for (int i = 0; i < n; ++i) {
+            if (predicate.test(getReading(i))) {
+                removed.set(i);
+            }
+        }
+        compact(removed);
+    }
+
+    /**
+     * Remove readings satisfying a predicate on primitive values.
+     *
+     * Contrary to {@link #removeReadings(Predicate)}, no reading object is
+     * allocated.
+     *
+     * @param predicate The predicate.
+     */
+    public void removeReadings(LongDoublePredicate predicate) {
+        final int n = this.size();
+        final BitSet removed = new BitSet(n);
+        for (int i = 0; i < n; ++i) {
+            if (predicate.test(
+                    this.datetimes.get(i).toEpochMilli(),
+                    ValidityMask.toDouble(this.values.get(i)))) {
+                removed.set(i);
             }
         }
+        compact(removed);
     }
 
     /**
@@ -295,17 +386,16 @@ public class TimeSeries<T extends Number> implements Iterable<Reading<T>> {
      * Note that the other time series must be contained in this time series.
      *
      * @param that The other time series.
-     * @param skipNaNs Skip NaN values.
+     * @param skipNaNs Skip missing values, i.e., null or NaN.
      */
     public void set(TimeSeries<T> that, boolean skipNaNs) {
         for (int i = 0; i < that.size(); ++i) {
-            int j = this.datetimes.indexOf(that.getReading(i).getDatetime());
-            T value = that.values.get(i);
-            if (skipNaNs && value instanceof Double && ((Double) value).isNaN()) {
-                // Skip
-            } else {
-                this.values.set(j, value);
+            final T value = that.values.get(i);
+            if (skipNaNs && ValidityMask.isMissing(value)) {
+                continue;
             }
+            int j = this.datetimes.indexOf(that.datetimes.get(i));
+            this.values.set(j, value);
         }
     }
 
@@ -320,22 +410,499 @@ public class TimeSeries<T extends Number> implements Iterable<Reading<T>> {
      */
     public static <S extends Number> TimeSeries<Double> computeDifference(
             TimeSeries<S> left, TimeSeries<S> right) {
-        final int n = left.size();
-        assert n == right.size();
+        return left.apply(ArithmeticOperator.SUBTRACT, right);
+    }
+
+    /**
+     * Apply an operator element-wise between this time series and another
+     * one.
+     *
+     * The two time series must be aligned, i.e., have the same index.
+     *
+     * @param operator The operator.
+     * @param that The right operand.
+     * @return A new time series.
+     * @throws IllegalArgumentException if the time series have different
+     * sizes
+     */
+    public TimeSeries<Double> apply(
+            ArithmeticOperator operator, TimeSeries<? extends Number> that) {
+        final double[] result = this.toDoubleArray();
+        operator.apply(result, that.toDoubleArray(), result);
+        return ofDoubles(this.datetimes, result);
+    }
+
+    /**
+     * Apply an operator element-wise between this time series and a scalar.
+     *
+     * @param operator The operator.
+     * @param value The right operand.
+     * @return A new time series.
+     */
+    public TimeSeries<Double> apply(ArithmeticOperator operator, double value) {
+        final double[] result = this.toDoubleArray();
+        operator.apply(result, value, result);
+        return ofDoubles(this.datetimes, result);
+    }
+
+    /**
+     * Compute the element-wise sum with an aligned time series.
+     *
+     * @param that The other time series.
+     * @return A new time series.
+     */
+    public TimeSeries<Double> add(TimeSeries<? extends Number> that) {
+        return apply(ArithmeticOperator.ADD, that);
+    }
+
+    /**
+     * Add a scalar to every value.
+     *
+     * @param value The scalar.
+     * @return A new time series.
+     */
+    public TimeSeries<Double> add(double value) {
+        return apply(ArithmeticOperator.ADD, value);
+    }
+
+    /**
+     * Compute the element-wise difference with an aligned time series.
+     *
+     * @param that The other time series.
+     * @return A new time series.
+     */
+    public TimeSeries<Double> subtract(TimeSeries<? extends Number> that) {
+        return apply(ArithmeticOperator.SUBTRACT, that);
+    }
+
+    /**
+     * Subtract a scalar from every value.
+     *
+     * @param value The scalar.
+     * @return A new time series.
+     */
+    public TimeSeries<Double> subtract(double value) {
+        return apply(ArithmeticOperator.SUBTRACT, value);
+    }
+
+    /**
+     * Compute the element-wise product with an aligned time series.
+     *
+     * @param that The other time series.
+     * @return A new time series.
+     */
+    public TimeSeries<Double> multiply(TimeSeries<? extends Number> that) {
+        return apply(ArithmeticOperator.MULTIPLY, that);
+    }
+
+    /**
+     * Multiply every value by a scalar.
+     *
+     * @param value The scalar.
+     * @return A new time series.
+     */
+    public TimeSeries<Double> multiply(double value) {
+        return apply(ArithmeticOperator.MULTIPLY, value);
+    }
+
+    /**
+     * Compute the element-wise quotient with an aligned time series.
+     *
+     * @param that The other time series.
+     * @return A new time series.
+     */
+    public TimeSeries<Double> divide(TimeSeries<? extends Number> that) {
+        return apply(ArithmeticOperator.DIVIDE, that);
+    }
+
+    /**
+     * Divide every value by a scalar.
+     *
+     * @param value The scalar.
+     * @return A new time series.
+     */
+    public TimeSeries<Double> divide(double value) {
+        return apply(ArithmeticOperator.DIVIDE, value);
+    }
+
+    /**
+     * Compute the absolute value of every value.
+     *
+     * @return A new time series.
+     */
+    public TimeSeries<Double> abs() {
+        final double[] result = this.toDoubleArray();
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = Math.abs(result[i]);
+        }
+        return ofDoubles(this.datetimes, result);
+    }
+
+    /**
+     * Limit every value to a given range.
+     *
+     * @param min The lower bound.
+     * @param max The upper bound.
+     * @return A new time series.
+     */
+    public TimeSeries<Double> clamp(double min, double max) {
+        final double[] result = this.toDoubleArray();
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = Math.min(Math.max(result[i], min), max);
+        }
+        return ofDoubles(this.datetimes, result);
+    }
+
+    /**
+     * Compute which values are valid, i.e., neither null nor NaN.
+     *
+     * The mask is computed on demand in one pass over the values and is not
+     * updated when the time series changes. Compute it once and reuse it for
+     * repeated queries.
+     *
+     * @return A validity mask.
+     */
+    public ValidityMask validity() {
+        return ValidityMask.of(this.values);
+    }
+
+    /**
+     * Return the number of valid values, i.e., neither null nor NaN.
+     *
+     * @return The number of valid values.
+     */
+    public int countValid() {
+        int count = 0;
+        for (T value : this.values) {
+            if (!ValidityMask.isMissing(value)) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replace every missing value with the last valid value before it.
+     *
+     * Missing values before the first valid one are left unchanged.
+     *
+     * @return A new time series.
+     */
+    public TimeSeries<T> fillForward() {
+        return new TimeSeries<>(
+                this.datetimes, validity().fillForward(this.values), this.clazz);
+    }
+
+    /**
+     * Replace every missing value with the first valid value after it.
+     *
+     * Missing values after the last valid one are left unchanged.
+     *
+     * @return A new time series.
+     */
+    public TimeSeries<T> fillBackward() {
+        return new TimeSeries<>(
+                this.datetimes, validity().fillBackward(this.values), this.clazz);
+    }
+
+    /**
+     * Replace every missing value with a linear interpolation in time between
+     * the surrounding valid values.
+     *
+     * Missing values before the first valid one and after the last valid one
+     * are set to NaN.
+     *
+     * @return A new time series.
+     */
+    public TimeSeries<Double> interpolateGaps() {
+        final double[] values = this.toDoubleArray();
+        return ofDoubles(this.datetimes,
+                ValidityMask.of(values).interpolate(this.toEpochMillisArray(), values));
+    }
+
+    /**
+     * Interpolate the readings on a regular grid spanning the time series.
+     *
+     * @param step The step of the grid.
+     * @param method The interpolation method.
+     * @return A new time series of doubles.
+     * @see #fillGaps(Instant, Instant, Duration, Interpolation, Duration)
+     */
+    public TimeSeries<Double> fillGaps(Duration step, Interpolation method) {
+        return fillGaps(step, method, null);
+    }
+
+    /**
+     * Interpolate the readings on a regular grid spanning the time series.
+     *
+     * @param step The step of the grid.
+     * @param method The interpolation method.
+     * @param maxGap The maximal duration between two valid readings to
+     * interpolate between them, or null for no limit.
+     * @return A new time series of doubles.
+     * @see #fillGaps(Instant, Instant, Duration, Interpolation, Duration)
+     */
+    public TimeSeries<Double> fillGaps(
+            Duration step, Interpolation method, Duration maxGap) {
+        if (this.datetimes.isEmpty()) {
+            return new TimeSeries<>(Double.class);
+        }
+        return fillGaps(this.datetimes.get(0),
+                this.datetimes.get(this.datetimes.size() - 1),
+                step, method, maxGap);
+    }
+
+    /**
+     * Interpolate the readings on a regular grid.
+     *
+     * Missing values are skipped. Grid datetimes before the first valid
+     * reading, after the last one, or between two valid readings further apart
+     * than the maximal gap are set to NaN.
+     *
+     * The time series is scanned once, in order, so the cost is linear in the
+     * number of readings plus the size of the grid.
+     *
+     * @param startTime The first datetime of the grid.
+     * @param stopTime The last datetime of the grid (inclusive).
+     * @param step The step of the grid.
+     * @param method The interpolation method.
+     * @param maxGap The maximal duration between two valid readings to
+     * interpolate between them, or null for no limit.
+     * @return A new time series of doubles.
+     */
+    public TimeSeries<Double> fillGaps(Instant startTime, Instant stopTime,
+            Duration step, Interpolation method, Duration maxGap) {
+        final long[] grid = Interpolator.grid(
+                startTime.toEpochMilli(), stopTime.toEpochMilli(), step.toMillis());
+        final Interpolator interpolator = new Interpolator(
+                this.toEpochMillisArray(), this.toDoubleArray(),
+                method, maxGap == null ? -1 : maxGap.toMillis());
+        return ofDoubles(Interpolator.toInstants(grid), interpolator.evaluate(grid));
+    }
+
+    /**
+     * Interpolate the readings linearly at the datetimes of another time
+     * series or data frame.
+     *
+     * @param target The sorted datetimes to interpolate at.
+     * @return A new time series of doubles.
+     * @see #resampleTo(List, Interpolation)
+     */
+    public TimeSeries<Double> resampleTo(List<Instant> target) {
+        return resampleTo(target, Interpolation.LINEAR);
+    }
+
+    /**
+     * Interpolate the readings at arbitrary datetimes.
+     *
+     * The target datetimes may be irregular, and are merged with the readings
+     * in a single scan. Missing values are skipped, and target datetimes
+     * before the first valid reading or after the last one are set to NaN.
+     *
+     * @param target The sorted datetimes to interpolate at.
+     * @param method The interpolation method.
+     * @return A new time series of doubles.
+     * @throws IllegalArgumentException if the target datetimes are not sorted
+     */
+    public TimeSeries<Double> resampleTo(List<Instant> target, Interpolation method) {
+        final Interpolator interpolator = new Interpolator(
+                this.toEpochMillisArray(), this.toDoubleArray(), method, -1);
+        return ofDoubles(target,
+                interpolator.evaluate(Interpolator.toEpochMillis(target)));
+    }
+
+    /**
+     * Reduce the number of readings for visualization with the
+     * Largest-Triangle-Three-Buckets method.
+     *
+     * @param threshold The maximal number of readings to keep.
+     * @return A new time series.
+     * @see #downsample(int, Downsampling)
+     */
+    public TimeSeries<T> downsample(int threshold) {
+        return downsample(threshold, Downsampling.LARGEST_TRIANGLE_THREE_BUCKETS);
+    }
+
+    /**
+     * Reduce the number of readings for visualization.
+     *
+     * The result is a subset of the readings, selected in time linear in the
+     * size of the time series, so that peaks are kept. Missing values are
+     * dropped.
+     *
+     * @param threshold The maximal number of readings to keep.
+     * @param method The downsampling method.
+     * @return A new time series.
+     */
+    public TimeSeries<T> downsample(int threshold, Downsampling method) {
+        final int[] selected = method.select(
+                this.toEpochMillisArray(), this.toDoubleArray(), threshold);
+        return select(this.datetimes, this.values, selected, this.clazz);
+    }
+
+    /**
+     * Create a time series from the readings at given positions.
+     *
+     * @param <S> The value type.
+     * @param datetimes A list of datetimes.
+     * @param values A list of values.
+     * @param positions The positions to keep.
+     * @param clazz Data type.
+     * @return A new time series.
+     */
+    static <S extends Number> TimeSeries<S> select(List<Instant> datetimes,
+            List<S> values, int[] positions, Class<S> clazz) {
+        TimeSeries<S> result = new TimeSeries<>(positions.length, clazz);
+        for (int i : positions) {
+            result.datetimes.add(datetimes.get(i));
+            result.values.add(values.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Sort the readings by datetime.
+     *
+     * The sort is stable, so readings with the same datetime keep their
+     * order. Inserting readings one at a time with
+     * {@link #addReading(int, Reading)} costs a linear time each, so readings
+     * arriving out of order should rather be appended, then sorted at once.
+     *
+     * @return A new time series.
+     */
+    public TimeSeries<T> sortByTime() {
+        final TimeOrder order = new TimeOrder(this.toEpochMillisArray());
+        return select(this.datetimes, this.values, order.sorted(), this.clazz);
+    }
+
+    /**
+     * Sort the readings by datetime and merge the readings sharing the same
+     * datetime.
+     *
+     * @param policy How to merge readings sharing the same datetime.
+     * @return A new time series, with one reading per datetime.
+     * @see #sortByTime()
+     */
+    public TimeSeries<T> deduplicate(Deduplication policy) {
+        final TimeOrder order = new TimeOrder(this.toEpochMillisArray());
+        final int[] first = order.representatives(Deduplication.FIRST);
+        if (policy != Deduplication.MEAN) {
+            return select(this.datetimes, this.values,
+                    order.representatives(policy), this.clazz);
+        }
+        // The means are converted back to the value type.
+        @SuppressWarnings("unchecked")
+        final List<T> means = (List<T>) order.means(this.values, this.clazz);
+        return new TimeSeries<>(
+                TimeOrder.pick(this.datetimes, first, new ArrayList<>(first.length)),
+                means, this.clazz);
+    }
+
+    /**
+     * Compute the summary statistics of the values.
+     *
+     * @return The summary statistics.
+     */
+    public SummaryStatistics stats() {
+        final SummaryStatistics statistics = new SummaryStatistics();
+        final int n = this.size();
+        for (int i = 0; i < n; ++i) {
+            statistics.accept(ValidityMask.toDouble(this.values.get(i)));
+        }
+        return statistics;
+    }
 
-        TimeSeries<Double> result = new TimeSeries<>(n, Double.class);
+    /**
+     * Build a quantile sketch of the values in a single pass.
+     *
+     * @param k The accuracy parameter of the sketch.
+     * @return A quantile sketch.
+     * @see QuantileSketch
+     */
+    public QuantileSketch quantileSketch(int k) {
+        final QuantileSketch sketch = new QuantileSketch(k);
+        final int n = this.size();
+        for (int i = 0; i < n; ++i) {
+            sketch.accept(ValidityMask.toDouble(this.values.get(i)));
+        }
+        return sketch;
+    }
+
+    /**
+     * Estimate quantiles of the values.
+     *
+     * NaN values are ignored. The estimate uses a {@link QuantileSketch} with
+     * default accuracy, so memory does not grow with the size of the time
+     * series.
+     *
+     * @param qs The quantiles, between 0 and 1.
+     * @return The estimated values, in the same order.
+     */
+    public double[] quantiles(double... qs) {
+        final QuantileSketch sketch = new QuantileSketch();
+        final int n = this.size();
+        for (int i = 0; i < n; ++i) {
+            sketch.accept(ValidityMask.toDouble(this.values.get(i)));
+        }
+        return sketch.quantiles(qs);
+    }
+
+    /**
+     * Build an index answering range aggregates in logarithmic time.
+     *
+     * The index is not updated when the time series changes.
+     *
+     * @return A new index.
+     * @see RangeQueryIndex
+     */
+    public RangeQueryIndex rangeQueryIndex() {
+        return new RangeQueryIndex(this.toEpochMillisArray(), this.toDoubleArray());
+    }
+
+    /**
+     * Copy the values to an array of doubles.
+     *
+     * @return An array of values.
+     */
+    public double[] toDoubleArray() {
+        final int n = this.size();
+        final double[] result = new double[n];
+        for (int i = 0; i < n; ++i) {
+            result[i] = ValidityMask.toDouble(this.values.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Copy the datetimes to an array of milliseconds since the epoch.
+     *
+     * @return An array of datetimes.
+     */
+    public long[] toEpochMillisArray() {
+        final int n = this.size();
+        final long[] result = new long[n];
         for (int i = 0; i < n; ++i) {
-            final Reading<S> a = left.getReading(i);
-            final Reading<S> b = right.getReading(i);
-            final Reading<Double> difference = new Reading<>(
-                    a.getDatetime(),
-                    a.getValue().doubleValue() - b.getValue().doubleValue(),
-                    Double.class);
-            result.addReading(difference);
+            result[i] = this.datetimes.get(i).toEpochMilli();
         }
         return result;
     }
 
+    /**
+     * Create a time series of doubles from a list of datetimes and an array
+     * of values.
+     *
+     * @param datetimes A list of datetimes.
+     * @param values An array of values.
+     * @return A time series.
+     */
+    static TimeSeries<Double> ofDoubles(List<Instant> datetimes, double[] values) {
+        List<Double> list = new ArrayList<>(values.length);
+        for (double value : values) {
+            list.add(value);
+        }
+        return new TimeSeries<>(datetimes, list, Double.class);
+    }
+
     /**
      * Resample a time series keeping the same starting/ending times.
      *
@@ -378,21 +945,87 @@ public class TimeSeries<T extends Number> implements Iterable<Reading<T>> {
         DataFrame dataframe = new DataFrame(this.datetimes);
         dataframe.addColumn(measure,
                 this.values.stream()
-                .map(Number::doubleValue)
+                .map(ValidityMask::toDouble)
                 .collect(Collectors.toList()));
         DataFrame resampled = dataframe.resample(startTime, stopTime, step);
         return resampled.getColumn(measure);
     }
 
+    /**
+     * Aggregate the values over consecutive calendar periods.
+     *
+     * @param unit The period unit, among minutes, hours, days, weeks, months
+     * and years.
+     * @param zone The time zone of the periods.
+     * @param aggregation The aggregation.
+     * @return A time series indexed by the start of every period.
+     * @throws IllegalArgumentException if the unit is not supported, or if
+     * the readings are not sorted by datetime
+     * @see DataFrame#resample(ChronoUnit, ZoneId, Aggregation)
+     */
+    public TimeSeries<Double> resample(ChronoUnit unit, ZoneId zone, Aggregation aggregation) {
+        Measure measure = new Measure("", Double.class);
+        DataFrame dataframe = new DataFrame(this.datetimes);
+        dataframe.addColumn(measure, this.toDoubleArray());
+        DataFrame resampled = dataframe.resample(unit, zone, aggregation);
+        return ofDoubles(resampled.getColumnView(measure).getDatetimes(),
+                resampled.getDoubleColumn(measure));
+    }
+
     public TimeSeries<Integer> toInteger() {
         List<Integer> integerValues = this.values.stream()
-                .map(i -> i.intValue())
+                .map(i -> i == null ? null : i.intValue())
                 .collect(Collectors.toList());
         TimeSeries<Integer> result = new TimeSeries<>(
                 this.datetimes, integerValues, Integer.class);
         return result;
     }
 
+    /**
+     * Perform an operation on every reading, in order.
+     *
+     * Values are converted to double, and no reading object is allocated.
+     *
+     * @param action The operation.
+     */
+    public void forEach(LongDoubleConsumer action) {
+        final int n = this.size();
+        for (int i = 0; i < n; ++i) {
+            action.accept(
+                    this.datetimes.get(i).toEpochMilli(),
+                    ValidityMask.toDouble(this.values.get(i)));
+        }
+    }
+
+    /**
+     * Iterate over the readings as primitive values.
+     *
+     * The returned iterator reuses a single {@link DoubleReading} instance,
+     * which is updated at every call to {@code next()}.
+     *
+     * @return An iterator of flyweight readings.
+     */
+    public Iterator<DoubleReading> doubleReadings() {
+        return new Iterator<DoubleReading>() {
+            @Override
+            public boolean hasNext() {
+                return i < size();
+            }
+
+            @Override
+            public DoubleReading next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                reading.set(getEpochMillis(i), getDouble(i));
+                i += 1;
+                return reading;
+            }
+            private final DoubleReading reading = new DoubleReading();
+            private int i = 0;
+        };
+    }
+
     /**
      * Access the time series as a stream of readings.
      *
@@ -472,6 +1105,21 @@ public class TimeSeries<T extends Number> implements Iterable<Reading<T>> {
         };
     }
 
+    private void compact(BitSet removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        final int n = this.size();
+        int j = removed.nextSetBit(0);
+        for (int i = removed.nextClearBit(j); i < n; i = removed.nextClearBit(i + 1)) {
+            this.datetimes.set(j, this.datetimes.get(i));
+            this.values.set(j, this.values.get(i));
+            j += 1;
+        }
+        this.datetimes.subList(j, n).clear();
+        this.values.subList(j, n).clear();
+    }
+
     private List<Instant> datetimes;
     private List<T> values;
     private final Class<T> clazz;
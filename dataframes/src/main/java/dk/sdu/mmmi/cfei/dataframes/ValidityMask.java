@@ -0,0 +1,327 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bitmap telling which values of a column are valid, i.e., not missing.
+ *
+ * A value is missing when it is {@code null} or NaN. Using {@code null} allows
+ * to express missing values in columns of any type, including integers.
+ *
+ * Bit {@code i} is set when value {@code i} is valid, so counting and
+ * scanning for missing values are operations on 64 values at a time.
+ *
+ * A mask is a snapshot built in one pass over boxed values: it is not stored
+ * with the column and does not follow later changes. Data frames and time
+ * series build a fresh mask on every call to {@code validity},
+ * {@code fillForward}, {@code fillBackward} and {@code interpolateGaps}, so
+ * the mask pays off within one call, where it is scanned run by run, rather
+ * than across calls.
+ *
+ * @author cgim
+ */
+public class ValidityMask {
+
+    private ValidityMask(long[] words, int size) {
+        this.words = words;
+        this.size = size;
+    }
+
+    /**
+     * Compute the validity of a list of values.
+     *
+     * @param values The values.
+     * @return A validity mask.
+     */
+    public static ValidityMask of(List<?> values) {
+        final int n = values.size();
+        final long[] words = new long[(n + 63) >>> 6];
+        for (int i = 0; i < n; ++i) {
+            if (!isMissing(values.get(i))) {
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+        return new ValidityMask(words, n);
+    }
+
+    /**
+     * Compute the validity of an array of values.
+     *
+     * @param values The values.
+     * @return A validity mask.
+     */
+    public static ValidityMask of(double[] values) {
+        final int n = values.length;
+        final long[] words = new long[(n + 63) >>> 6];
+        for (int i = 0; i < n; ++i) {
+            if (values[i] == values[i]) {
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+        return new ValidityMask(words, n);
+    }
+
+    /**
+     * Return the number of values.
+     *
+     * @return The number of values.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Tell whether a value is valid.
+     *
+     * @param i The position.
+     * @return True if the value is valid.
+     */
+    public boolean isValid(int i) {
+        if (i < 0 || i >= this.size) {
+            throw new IndexOutOfBoundsException(
+                    "Index: " + i + ", Size: " + this.size);
+        }
+        return (this.words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Return the number of valid values.
+     *
+     * @return The number of valid values.
+     */
+    public int countValid() {
+        int count = 0;
+        for (long word : this.words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Return the number of missing values.
+     *
+     * @return The number of missing values.
+     */
+    public int countMissing() {
+        return this.size - countValid();
+    }
+
+    /**
+     * Return the position of the first valid value at or after a position.
+     *
+     * @param from The starting position.
+     * @return The position of a valid value, or -1 if there is none.
+     */
+    public int nextValid(int from) {
+        if (from >= this.size) {
+            return -1;
+        }
+        int w = from >>> 6;
+        long word = this.words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                final int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                return i < this.size ? i : -1;
+            }
+            w += 1;
+            if (w == this.words.length) {
+                return -1;
+            }
+            word = this.words[w];
+        }
+    }
+
+    /**
+     * Return the position of the first missing value at or after a position.
+     *
+     * @param from The starting position.
+     * @return The position of a missing value, or -1 if there is none.
+     */
+    public int nextMissing(int from) {
+        if (from >= this.size) {
+            return -1;
+        }
+        int w = from >>> 6;
+        long word = ~this.words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                final int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                return i < this.size ? i : -1;
+            }
+            w += 1;
+            if (w == this.words.length) {
+                return -1;
+            }
+            word = ~this.words[w];
+        }
+    }
+
+    /**
+     * Return the position of the last valid value at or before a position.
+     *
+     * @param from The starting position.
+     * @return The position of a valid value, or -1 if there is none.
+     */
+    public int previousValid(int from) {
+        final int start = Math.min(from, this.size - 1);
+        if (start < 0) {
+            return -1;
+        }
+        int w = start >>> 6;
+        long word = this.words[w] & (-1L >>> (63 - (start & 63)));
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+            }
+            w -= 1;
+            if (w < 0) {
+                return -1;
+            }
+            word = this.words[w];
+        }
+    }
+
+    /**
+     * Compute the positions where both masks are valid.
+     *
+     * @param that The other mask.
+     * @return A new validity mask.
+     * @throws IllegalArgumentException if the masks have different sizes
+     */
+    public ValidityMask and(ValidityMask that) {
+        if (this.size != that.size) {
+            throw new IllegalArgumentException(
+                    "Masks have different sizes: "
+                    + this.size + " and " + that.size);
+        }
+        final long[] result = new long[this.words.length];
+        for (int w = 0; w < result.length; ++w) {
+            result[w] = this.words[w] & that.words[w];
+        }
+        return new ValidityMask(result, this.size);
+    }
+
+    /**
+     * Replace every missing value with the last valid value before it.
+     *
+     * Missing values before the first valid one are left unchanged.
+     *
+     * @param <T> The value type.
+     * @param values The values, of the same size as this mask.
+     * @return A new list of values.
+     */
+    <T> List<T> fillForward(List<T> values) {
+        final List<T> result = new ArrayList<>(values);
+        int missing = nextMissing(0);
+        while (missing >= 0) {
+            final int valid = nextValid(missing);
+            final int end = valid < 0 ? this.size : valid;
+            if (missing > 0) {
+                final T value = values.get(missing - 1);
+                for (int i = missing; i < end; ++i) {
+                    result.set(i, value);
+                }
+            }
+            missing = valid < 0 ? -1 : nextMissing(valid);
+        }
+        return result;
+    }
+
+    /**
+     * Replace every missing value with the first valid value after it.
+     *
+     * Missing values after the last valid one are left unchanged.
+     *
+     * @param <T> The value type.
+     * @param values The values, of the same size as this mask.
+     * @return A new list of values.
+     */
+    <T> List<T> fillBackward(List<T> values) {
+        final List<T> result = new ArrayList<>(values);
+        int missing = nextMissing(0);
+        while (missing >= 0) {
+            final int valid = nextValid(missing);
+            if (valid < 0) {
+                break;
+            }
+            final T value = values.get(valid);
+            for (int i = missing; i < valid; ++i) {
+                result.set(i, value);
+            }
+            missing = nextMissing(valid);
+        }
+        return result;
+    }
+
+    /**
+     * Replace every missing value with a linear interpolation in time between
+     * the surrounding valid values.
+     *
+     * Missing values before the first valid one and after the last valid one
+     * are set to NaN.
+     *
+     * @param datetimes The datetimes, as milliseconds since the epoch.
+     * @param values The values, of the same size as this mask.
+     * @return A new array of values.
+     */
+    double[] interpolate(long[] datetimes, double[] values) {
+        final double[] result = values.clone();
+        int missing = nextMissing(0);
+        while (missing >= 0) {
+            final int valid = nextValid(missing);
+            final int end = valid < 0 ? this.size : valid;
+            if (missing == 0 || valid < 0) {
+                for (int i = missing; i < end; ++i) {
+                    result[i] = Double.NaN;
+                }
+            } else {
+                final long t0 = datetimes[missing - 1];
+                final double y0 = values[missing - 1];
+                final double slope = (values[valid] - y0) / (datetimes[valid] - t0);
+                for (int i = missing; i < end; ++i) {
+                    result[i] = y0 + slope * (datetimes[i] - t0);
+                }
+            }
+            missing = valid < 0 ? -1 : nextMissing(valid);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidityMask{" + "size=" + this.size + ", valid=" + countValid() + '}';
+    }
+
+    /**
+     * Tell whether a value is missing, i.e., null or NaN.
+     *
+     * @param value The value.
+     * @return True if the value is missing.
+     */
+    static boolean isMissing(Object value) {
+        if (value == null) {
+            return true;
+        }
+        if (value instanceof Double) {
+            return ((Double) value).isNaN();
+        }
+        if (value instanceof Float) {
+            return ((Float) value).isNaN();
+        }
+        return false;
+    }
+
+    /**
+     * Convert a value to double, mapping missing values to NaN.
+     *
+     * @param value The value.
+     * @return The value as double.
+     */
+    static double toDouble(Number value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+
+    private final long[] words;
+    private final int size;
+}
@@ -0,0 +1,76 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author cgim
+ */
+public class CategoricalColumnTest {
+
+    @Test
+    public void encodeTest() {
+        List<String> values = Arrays.asList("on", "off", null, "on", "standby", "off");
+        CategoricalColumn column = CategoricalColumn.of(values);
+
+        assertEquals(6, column.size());
+        assertEquals(3, column.cardinality());
+        assertEquals(Arrays.asList("on", "off", "standby"), column.getDictionary());
+        assertEquals(0, column.getCode(3));
+        assertEquals(-1, column.getCode(2));
+        assertEquals(2, column.codeOf("standby"));
+        assertEquals(-1, column.codeOf("unknown"));
+        assertEquals(values, column);
+        assertEquals(column, values);
+        assertEquals(values.hashCode(), column.hashCode());
+    }
+
+    @Test
+    public void equalToTest() {
+        CategoricalColumn column = CategoricalColumn.of(
+                Arrays.asList("on", "off", null, "on", "standby", "off"));
+
+        BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(3);
+        assertEquals(expected, column.equalTo("on"));
+        assertEquals(BitSet.valueOf(new long[]{4}), column.equalTo(null));
+        assertTrue(column.equalTo("unknown").isEmpty());
+    }
+
+    @Test
+    public void countsTest() {
+        CategoricalColumn column = CategoricalColumn.of(
+                Arrays.asList("on", "off", null, "on", "standby", "off"));
+
+        assertArrayEquals(new int[]{2, 2, 1}, column.countByCode());
+        Map<String, Integer> counts = column.counts();
+        assertEquals(Arrays.asList("on", "off", "standby"), Arrays.asList(counts.keySet().toArray()));
+        assertEquals(2, (int) counts.get("off"));
+    }
+
+    @Test
+    public void setAndCopyTest() {
+        CategoricalColumn column = new CategoricalColumn(1);
+        for (int i = 0; i < 100; ++i) {
+            column.add(i % 2 == 0 ? "even" : "odd");
+        }
+        CategoricalColumn copy = column.copy();
+        assertEquals("even", column.set(0, "zero"));
+
+        assertEquals("zero", column.get(0));
+        assertEquals("even", copy.get(0));
+        assertEquals(3, column.cardinality());
+        assertEquals(2, copy.cardinality());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBoundsTest() {
+        CategoricalColumn.of(Arrays.asList("a")).get(1);
+    }
+}
@@ -0,0 +1,86 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author cgim
+ */
+public class ConcurrentTimeSeriesTest {
+
+    @Test
+    public void toTimeSeriesTest() {
+        Instant[] timestampsArray = {
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 55).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 59).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 8).toInstant(ZoneOffset.UTC)};
+        Double[] valuesArray = {24.6, 28.7, 26.3};
+        ArrayList<Instant> timestamps = new ArrayList<>(Arrays.asList(timestampsArray));
+        ArrayList<Double> values = new ArrayList<>(Arrays.asList(valuesArray));
+        TimeSeries<Double> expected = new TimeSeries<>(timestamps, values, Double.class);
+
+        ConcurrentTimeSeries timeSeries = new ConcurrentTimeSeries(1);
+        for (int i = 0; i < timestampsArray.length; ++i) {
+            timeSeries.addReading(timestampsArray[i], valuesArray[i]);
+        }
+
+        assertEquals(3, timeSeries.size());
+        assertEquals(expected, timeSeries.toTimeSeries());
+        assertEquals(timestampsArray[2], timeSeries.getLastReading().getDatetime());
+        assertEquals(26.3, timeSeries.getLastReading().getValue(), 0.0);
+    }
+
+    @Test
+    public void snapshotIsStableTest() {
+        ConcurrentTimeSeries timeSeries = new ConcurrentTimeSeries(2);
+        timeSeries.addReading(0L, 1.0);
+        timeSeries.addReading(1000L, 2.0);
+
+        ConcurrentTimeSeries.Snapshot snapshot = timeSeries.snapshot();
+        timeSeries.addReading(2000L, 3.0);
+
+        assertEquals(2, snapshot.size());
+        assertEquals(3, timeSeries.size());
+        assertEquals(2.0, snapshot.getDouble(1), 0.0);
+        assertEquals(3.0, timeSeries.snapshot().getDouble(2), 0.0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void unpublishedReadingTest() {
+        ConcurrentTimeSeries timeSeries = new ConcurrentTimeSeries();
+        timeSeries.addReading(0L, 1.0);
+        timeSeries.getReading(1);
+    }
+
+    @Test
+    public void concurrentReadersTest() throws InterruptedException {
+        final int n = 100000;
+        ConcurrentTimeSeries timeSeries = new ConcurrentTimeSeries(1);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < n; ++i) {
+                timeSeries.addReading(i, i);
+            }
+        });
+        writer.start();
+
+        boolean consistent = true;
+        while (writer.isAlive()) {
+            ConcurrentTimeSeries.Snapshot snapshot = timeSeries.snapshot();
+            for (int i = 0; i < snapshot.size(); i += 97) {
+                consistent &= snapshot.getEpochMillis(i) == i;
+                consistent &= snapshot.getDouble(i) == i;
+            }
+        }
+        writer.join();
+
+        assertTrue(consistent);
+        assertEquals(n, timeSeries.size());
+    }
+}
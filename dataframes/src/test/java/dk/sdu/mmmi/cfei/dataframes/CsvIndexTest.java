@@ -0,0 +1,130 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author cgim
+ */
+public class CsvIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final DateTimeFormatter FORMATTER
+            = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private Path writeCsv(int rows, String newline) throws IOException {
+        StringBuilder builder = new StringBuilder("datetime,first,second").append(newline);
+        Instant start = Instant.parse("2016-01-01T00:00:00Z");
+        for (int i = 0; i < rows; ++i) {
+            builder.append(FORMATTER.format(start.plusSeconds(60L * i).atZone(ZoneOffset.UTC)))
+                    .append(',').append(i)
+                    .append(',').append(i % 7 == 0 ? "" : String.valueOf(2 * i))
+                    .append(newline);
+        }
+        Path file = folder.newFile("data.csv").toPath();
+        Files.write(file, builder.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void loadRangeTest() throws IOException {
+        Path file = writeCsv(10000, "\n");
+        CsvIndex index = CsvIndex.build(file, FORMATTER, ZoneOffset.UTC, 100);
+
+        assertEquals(100, index.size());
+        assertEquals("datetime,first,second", index.getHeader());
+
+        Instant start = Instant.parse("2016-01-02T03:04:00Z");
+        Instant stop = Instant.parse("2016-01-03T00:00:00Z");
+        DataFrame actual = DataFrame.fromCsv(file, index, FORMATTER, ZoneOffset.UTC, start, stop);
+        DataFrame expected = DataFrame.fromCsv(
+                Files.newBufferedReader(file, StandardCharsets.UTF_8),
+                FORMATTER, ZoneOffset.UTC, null, start, stop);
+
+        assertEquals(expected, actual);
+        assertEquals(start, actual.getRow(0).getDatetime());
+        assertEquals(stop, actual.getLastRow().getDatetime());
+        assertEquals(1257, actual.size());
+    }
+
+    @Test
+    public void sidecarTest() throws IOException {
+        Path file = writeCsv(1000, "\r\n");
+        CsvIndex index = CsvIndex.open(file, FORMATTER, ZoneOffset.UTC, 64);
+
+        assertTrue(Files.exists(CsvIndex.sidecarOf(file)));
+        CsvIndex read = CsvIndex.read(CsvIndex.sidecarOf(file));
+        assertEquals(index.size(), read.size());
+        assertEquals(index.getFileSize(), read.getFileSize());
+        assertEquals(index.getHeader(), read.getHeader());
+
+        DataFrame all = DataFrame.fromCsv(file, read, FORMATTER, ZoneOffset.UTC, null, null);
+        DataFrame expected = DataFrame.fromCsv(
+                new StringReader(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)),
+                FORMATTER, ZoneOffset.UTC);
+        assertEquals(expected, all);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outOfDateTest() throws IOException {
+        Path file = writeCsv(10, "\n");
+        CsvIndex index = CsvIndex.build(file, FORMATTER, ZoneOffset.UTC, 4);
+        Files.write(file, "2016-01-02 00:00:00,1,2\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        DataFrame.fromCsv(file, index, FORMATTER, ZoneOffset.UTC, null, null);
+    }
+
+    @Test
+    public void sidecarStaleTest() throws IOException {
+        Path file = writeCsv(100, "\n");
+        CsvIndex index = CsvIndex.open(file, FORMATTER, ZoneOffset.UTC, 8);
+        assertEquals(ZoneOffset.UTC, CsvIndex.read(CsvIndex.sidecarOf(file)).getTimezone());
+
+        // Same size, different content and modification time.
+        byte[] content = Files.readAllBytes(file);
+        content[content.length - 2] = (byte) (content[content.length - 2] == '0' ? '1' : '0');
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(
+                index.getLastModified().toEpochMilli() + 5000));
+        CsvIndex reopened = CsvIndex.open(file, FORMATTER, ZoneOffset.UTC, 8);
+        assertEquals(index.getFileSize(), reopened.getFileSize());
+        assertEquals(index.getLastModified().plusSeconds(5), reopened.getLastModified());
+
+        ZoneId zone = ZoneId.of("Europe/Copenhagen");
+        CsvIndex zoned = CsvIndex.open(file, FORMATTER, zone, 8);
+        assertEquals(zone, zoned.getTimezone());
+        assertEquals(zone, CsvIndex.read(CsvIndex.sidecarOf(file)).getTimezone());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void timezoneMismatchTest() throws IOException {
+        Path file = writeCsv(10, "\n");
+        CsvIndex index = CsvIndex.build(file, FORMATTER, ZoneOffset.UTC, 4);
+        DataFrame.fromCsv(file, index, FORMATTER, ZoneId.of("Europe/Copenhagen"), null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void modifiedTest() throws IOException {
+        Path file = writeCsv(10, "\n");
+        CsvIndex index = CsvIndex.build(file, FORMATTER, ZoneOffset.UTC, 4);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(
+                index.getLastModified().toEpochMilli() + 5000));
+        DataFrame.fromCsv(file, index, FORMATTER, ZoneOffset.UTC, null, null);
+    }
+}
@@ -2,16 +2,30 @@ package dk.sdu.mmmi.cfei.dataframes;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.Instant;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.junit.Assert.*;
 
 /**
@@ -20,6 +34,9 @@ import static org.junit.Assert.*;
  */
 public class DataFrameTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void downsampleTest() {
         Instant[] timestampsOriginalArray = {
@@ -603,4 +620,779 @@ public class DataFrameTest {
 
         assertEquals(expected, original);
     }
+
+    @Test
+    public void computeTest() {
+        Instant[] timestampsArray = {
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 0).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 10).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 20).toInstant(ZoneOffset.UTC)};
+        Double[] supplyArray = {40., 42., 44.};
+        Integer[] returnArray = {30, 31, 32};
+        List<Instant> timestamps = Arrays.asList(timestampsArray);
+        Measure supply = new Measure("supply", Double.class);
+        Measure ret = new Measure("return", Integer.class);
+        Measure delta = new Measure("delta", Double.class);
+        Measure scaled = new Measure("scaled", Double.class);
+
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(supply, Arrays.asList(supplyArray));
+        dataFrame.addColumn(ret, Arrays.asList(returnArray));
+
+        dataFrame.compute(delta, supply, ArithmeticOperator.SUBTRACT, ret);
+        dataFrame.compute(scaled, delta, ArithmeticOperator.MULTIPLY, 0.5);
+
+        assertEquals(Arrays.asList(supply, ret, delta, scaled), dataFrame.getColumns());
+        assertArrayEquals(new double[]{10., 11., 12.}, dataFrame.getDoubleColumn(delta), 0.0);
+        assertArrayEquals(new double[]{5., 5.5, 6.}, dataFrame.getDoubleColumn(scaled), 0.0);
+    }
+
+    @Test
+    public void deriveTest() {
+        Instant[] timestampsArray = {
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 0).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 10).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 20).toInstant(ZoneOffset.UTC)};
+        Double[] supplyArray = {40., 42., 44.};
+        Integer[] returnArray = {30, 31, 32};
+        Double[] powerArray = {2000., 4000., 6000.};
+        List<Instant> timestamps = Arrays.asList(timestampsArray);
+
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(new Measure("supplyTemp", Double.class), Arrays.asList(supplyArray));
+        dataFrame.addColumn(new Measure("returnTemp", Integer.class), Arrays.asList(returnArray));
+        dataFrame.addColumn(new Measure("Power [W]", Double.class), Arrays.asList(powerArray));
+
+        Map<String, String> expressions = new LinkedHashMap<>();
+        expressions.put("delta", "supplyTemp - returnTemp");
+        expressions.put("power", "`Power [W]` * 0.001 / 2");
+        expressions.put("high", "delta >= 11");
+        expressions.put("mixed", "-(delta - 2 * (1 + 1)) + 1e1");
+        dataFrame.derive(expressions);
+
+        assertArrayEquals(new double[]{10., 11., 12.},
+                dataFrame.getDoubleColumn(new Measure("delta", Double.class)), 0.0);
+        assertArrayEquals(new double[]{1., 2., 3.},
+                dataFrame.getDoubleColumn(new Measure("power", Double.class)), 1e-12);
+        assertArrayEquals(new double[]{0., 1., 1.},
+                dataFrame.getDoubleColumn(new Measure("high", Double.class)), 0.0);
+        assertArrayEquals(new double[]{4., 3., 2.},
+                dataFrame.getDoubleColumn(new Measure("mixed", Double.class)), 0.0);
+    }
+
+    @Test
+    public void deriveLargeTest() {
+        final int n = 5000;
+        List<Instant> timestamps = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < n; ++i) {
+            timestamps.add(Instant.ofEpochSecond(i));
+            values.add((double) i);
+        }
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(new Measure("x", Double.class), values);
+
+        dataFrame.derive("y", "x * x - x");
+
+        double[] y = dataFrame.getDoubleColumn(new Measure("y", Double.class));
+        for (int i = 0; i < n; ++i) {
+            assertEquals((double) i * i - i, y[i], 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deriveUnknownColumnTest() {
+        DataFrame dataFrame = new DataFrame(Arrays.asList(Instant.EPOCH));
+        dataFrame.addColumn(new Measure("x", Double.class), Arrays.asList(1.0));
+
+        dataFrame.derive("y", "x + z");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deriveInvalidExpressionTest() {
+        DataFrame dataFrame = new DataFrame(Arrays.asList(Instant.EPOCH));
+        dataFrame.addColumn(new Measure("x", Double.class), Arrays.asList(1.0));
+
+        dataFrame.derive("y", "(x + 1");
+    }
+
+    @Test
+    public void groupByTest() {
+        List<Instant> timestamps = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        ZoneId zone = ZoneId.of("Europe/Copenhagen");
+        // One week of hourly readings across the autumn DST transition,
+        // where the value is the local hour of the day.
+        ZonedDateTime start = LocalDateTime.of(2016, Month.OCTOBER, 27, 0, 0).atZone(zone);
+        for (int i = 0; i < 7 * 24; ++i) {
+            ZonedDateTime datetime = start.plusHours(i);
+            timestamps.add(datetime.toInstant());
+            values.add((double) datetime.getHour());
+        }
+        values.set(5, Double.NaN);
+        Measure measure = new Measure("hour", Double.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(measure, values);
+
+        CalendarProfile profile = dataFrame.groupBy(
+                CalendarKey.HOUR_OF_DAY, zone,
+                Aggregation.MEAN, Aggregation.COUNT, Aggregation.MIN);
+
+        double[] expectedMean = new double[24];
+        double[] expectedCount = new double[24];
+        for (int h = 0; h < 24; ++h) {
+            expectedMean[h] = h;
+            expectedCount[h] = 7;
+        }
+        expectedCount[2] = 8; // Repeated hour when leaving DST
+        expectedCount[5] = 6; // NaN reading
+        expectedCount[23] = 6; // Last day ends one hour earlier
+        assertArrayEquals(expectedMean, profile.getValues(measure, Aggregation.MEAN), 0.0);
+        assertArrayEquals(expectedCount, profile.getValues(measure, Aggregation.COUNT), 0.0);
+        assertArrayEquals(expectedMean, profile.getValues(measure, Aggregation.MIN), 0.0);
+
+        CalendarProfile weekly = dataFrame.groupBy(
+                CalendarKey.DAY_OF_WEEK, zone, Aggregation.COUNT);
+        // Starts on Thursday with a NaN reading, Sunday has 25 hours.
+        double[] expectedDailyCount = {24, 24, 23, 23, 24, 24, 25};
+        assertArrayEquals(expectedDailyCount, weekly.getValues(measure, Aggregation.COUNT), 0.0);
+    }
+
+    @Test
+    public void groupByParallelTest() {
+        final int n = 200000;
+        List<Instant> timestamps = new ArrayList<>(n);
+        List<Integer> values = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            timestamps.add(Instant.ofEpochSecond(60L * i));
+            values.add(i % 10);
+        }
+        Measure measure = new Measure("value", Integer.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(measure, values);
+
+        CalendarProfile profile = dataFrame.groupBy(
+                CalendarKey.MONTH, Aggregation.COUNT, Aggregation.SUM, Aggregation.MAX);
+
+        double totalCount = Arrays.stream(profile.getValues(measure, Aggregation.COUNT)).sum();
+        double totalSum = Arrays.stream(profile.getValues(measure, Aggregation.SUM)).sum();
+        assertEquals(n, totalCount, 0.0);
+        assertEquals(n / 10 * 45, totalSum, 0.0);
+        assertEquals(9.0, profile.getValues(measure, Aggregation.MAX)[0], 0.0);
+        assertTrue(Double.isNaN(profile.getValues(measure, Aggregation.MAX)[11]));
+    }
+
+    @Test
+    public void describeTest() {
+        final int n = 150000;
+        List<Instant> timestamps = new ArrayList<>(n);
+        List<Double> first = new ArrayList<>(n);
+        List<Integer> second = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            timestamps.add(Instant.ofEpochSecond(i));
+            first.add(i % 3 == 0 ? Double.NaN : 1e9 + i % 5);
+            second.add(i);
+        }
+        Measure firstMeasure = new Measure("first", Double.class);
+        Measure secondMeasure = new Measure("second", Integer.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(firstMeasure, first);
+        dataFrame.addColumn(secondMeasure, second);
+
+        Map<Measure, SummaryStatistics> description = dataFrame.describe();
+
+        assertEquals(Arrays.asList(firstMeasure, secondMeasure),
+                new ArrayList<>(description.keySet()));
+
+        SummaryStatistics expectedFirst = new SummaryStatistics();
+        first.forEach(expectedFirst::accept);
+        SummaryStatistics actualFirst = description.get(firstMeasure);
+        assertEquals(n / 3, actualFirst.getNanCount());
+        assertEquals(expectedFirst.getCount(), actualFirst.getCount());
+        assertEquals(expectedFirst.getMean(), actualFirst.getMean(), 1e-4);
+        assertEquals(expectedFirst.getVariance(), actualFirst.getVariance(), 1e-6);
+
+        SummaryStatistics actualSecond = description.get(secondMeasure);
+        assertEquals(n, actualSecond.getCount());
+        assertEquals((n - 1) / 2.0, actualSecond.getMean(), 1e-9);
+        assertEquals(0.0, actualSecond.getMin(), 0.0);
+        assertEquals(n - 1, actualSecond.getMax(), 0.0);
+        assertEquals(n * (n + 1.0) / 12.0, actualSecond.getVariance(), 1e-3);
+    }
+
+    @Test
+    public void quantilesTest() {
+        final int n = 300000;
+        List<Instant> timestamps = new ArrayList<>(n);
+        List<Double> first = new ArrayList<>(n);
+        List<Double> second = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            timestamps.add(Instant.ofEpochSecond(i));
+            first.add((double) ((i * 7919L) % n));
+            second.add(i % 2 == 0 ? Double.NaN : -1.0);
+        }
+        Measure firstMeasure = new Measure("first", Double.class);
+        Measure secondMeasure = new Measure("second", Double.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(firstMeasure, first);
+        dataFrame.addColumn(secondMeasure, second);
+
+        Map<Measure, double[]> quantiles = dataFrame.quantiles(0.5, 0.95);
+
+        assertArrayEquals(new double[]{0.5 * n, 0.95 * n}, quantiles.get(firstMeasure), 0.02 * n);
+        assertArrayEquals(new double[]{-1.0, -1.0}, quantiles.get(secondMeasure), 0.0);
+        assertEquals(n / 2, dataFrame.quantileSketches(100).get(secondMeasure).getCount());
+    }
+
+    @Test
+    public void fromCsvIntegerMissingTest() throws IOException {
+        Instant[] timestampsArray = {
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 0).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 10).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 20).toInstant(ZoneOffset.UTC)};
+        Double[] firstArray = {1., Double.NaN, 3.};
+        Integer[] secondArray = {9, null, 7};
+        List<Instant> timestamps = Arrays.asList(timestampsArray);
+
+        DataFrame expected = new DataFrame(timestamps);
+        expected.addColumn(new Measure("first", Double.class), Arrays.asList(firstArray));
+        expected.addColumn(new Measure("second", Integer.class), Arrays.asList(secondArray));
+
+        String csv = "datetime,first,second\n"
+                + "2016-03-15 12:00:00,1.0,9\n"
+                + "2016-03-15 12:10:00,,\n"
+                + "2016-03-15 12:20:00,3.0,7";
+
+        DataFrame actual = DataFrame.fromCsv(new StringReader(csv),
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+                ZoneOffset.UTC,
+                Arrays.asList(Double.class, Integer.class));
+
+        assertEquals(expected, actual);
+        assertEquals(2, actual.validity(new Measure("second", Integer.class)).countValid());
+        assertEquals(
+                "datetime,first,second\n"
+                + "2016-03-15T12:00:00Z,1.0,9\n"
+                + "2016-03-15T12:10:00Z,,\n"
+                + "2016-03-15T12:20:00Z,3.0,7",
+                actual.toCsv());
+
+        DataFrame filled = actual.fillForward();
+        assertEquals(Arrays.asList(9, 9, 7),
+                filled.getColumn(new Measure("second", Integer.class)).getValues());
+        DataFrame interpolated = actual.interpolateGaps();
+        assertArrayEquals(new double[]{9., 8., 7.},
+                interpolated.getDoubleColumn(new Measure("second", Double.class)), 0.0);
+    }
+
+    @Test
+    public void fillGapsTest() {
+        List<Instant> timestamps = new ArrayList<>();
+        List<Double> first = new ArrayList<>();
+        List<Integer> second = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            timestamps.add(Instant.ofEpochSecond(i * 10));
+            first.add(i == 4 ? Double.NaN : i * 1.0);
+            second.add(i < 3 ? null : 2 * i);
+        }
+        Measure firstMeasure = new Measure("first", Double.class);
+        Measure secondMeasure = new Measure("second", Integer.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(firstMeasure, first);
+        dataFrame.addColumn(secondMeasure, second);
+
+        DataFrame filled = dataFrame.fillGaps(
+                Duration.ofSeconds(5), Interpolation.LINEAR, Duration.ofSeconds(15));
+
+        assertEquals(19, filled.size());
+        assertEquals(Instant.ofEpochSecond(90), filled.getLastRow().getDatetime());
+        Measure secondDouble = new Measure("second", Double.class);
+        assertEquals(Arrays.asList(firstMeasure, secondDouble), filled.getColumns());
+        double[] firstValues = filled.getDoubleColumn(firstMeasure);
+        assertEquals(2.5, firstValues[5], 1e-12);
+        assertEquals(3.0, firstValues[6], 1e-12);
+        assertTrue(Double.isNaN(firstValues[7]));
+        assertTrue(Double.isNaN(firstValues[8]));
+        assertTrue(Double.isNaN(firstValues[9]));
+        assertEquals(5.0, firstValues[10], 1e-12);
+        assertEquals(5.5, firstValues[11], 1e-12);
+        double[] secondValues = filled.getDoubleColumn(secondDouble);
+        assertTrue(Double.isNaN(secondValues[5]));
+        assertEquals(6.0, secondValues[6], 1e-12);
+        assertEquals(7.0, secondValues[7], 1e-12);
+        assertEquals(18.0, secondValues[18], 1e-12);
+    }
+
+    @Test
+    public void resampleToTest() {
+        List<Instant> timestamps = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            timestamps.add(Instant.ofEpochSecond(60 * i));
+            values.add(i * 6.0);
+        }
+        Measure measure = new Measure("measure", Double.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(measure, values);
+        List<Instant> target = Arrays.asList(
+                Instant.ofEpochSecond(15),
+                Instant.ofEpochSecond(17),
+                Instant.ofEpochSecond(200),
+                Instant.ofEpochSecond(240));
+
+        DataFrame resampled = dataFrame.resampleTo(target);
+
+        assertEquals(4, resampled.size());
+        assertEquals(Instant.ofEpochSecond(17), resampled.getRow(1).getDatetime());
+        assertArrayEquals(new double[]{1.5, 1.7, 20., 24.},
+                resampled.getDoubleColumn(measure), 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resampleToUnsortedTest() {
+        DataFrame dataFrame = new DataFrame(Arrays.asList(Instant.ofEpochSecond(0)));
+        dataFrame.resampleTo(Arrays.asList(
+                Instant.ofEpochSecond(10), Instant.ofEpochSecond(5)));
+    }
+
+    @Test
+    public void resampleCalendarTest() {
+        ZoneId zone = ZoneId.of("Europe/Copenhagen");
+        Instant start = ZonedDateTime.of(2016, 3, 26, 0, 0, 0, 0, zone).toInstant();
+        Instant stop = ZonedDateTime.of(2016, 3, 29, 0, 0, 0, 0, zone).toInstant();
+        List<Instant> timestamps = new ArrayList<>();
+        List<Double> first = new ArrayList<>();
+        List<Integer> second = new ArrayList<>();
+        for (Instant t = start; t.isBefore(stop); t = t.plus(Duration.ofHours(1))) {
+            timestamps.add(t);
+            first.add(1.0);
+            second.add(timestamps.size() % 2 == 0 ? null : 2);
+        }
+        Measure firstMeasure = new Measure("first", Double.class);
+        Measure secondMeasure = new Measure("second", Integer.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(firstMeasure, first);
+        dataFrame.addColumn(secondMeasure, second);
+
+        DataFrame daily = dataFrame.resample(ChronoUnit.DAYS, zone, Aggregation.SUM);
+
+        assertEquals(3, daily.size());
+        assertEquals(ZonedDateTime.of(2016, 3, 27, 0, 0, 0, 0, zone).toInstant(),
+                daily.getRow(1).getDatetime());
+        assertArrayEquals(new double[]{24., 23., 24.},
+                daily.getDoubleColumn(firstMeasure), 1e-12);
+        Measure secondDouble = new Measure("second", Double.class);
+        assertArrayEquals(new double[]{24., 24., 24.},
+                daily.getDoubleColumn(secondDouble), 1e-12);
+
+        DataFrame weekly = dataFrame.resample(ChronoUnit.WEEKS, zone, Aggregation.COUNT);
+        assertEquals(2, weekly.size());
+        assertEquals(ZonedDateTime.of(2016, 3, 21, 0, 0, 0, 0, zone).toInstant(),
+                weekly.getRow(0).getDatetime());
+        assertArrayEquals(new double[]{47., 24.},
+                weekly.getDoubleColumn(firstMeasure), 1e-12);
+    }
+
+    @Test
+    public void resampleCalendarEmptyPeriodsTest() {
+        List<Instant> timestamps = Arrays.asList(
+                LocalDateTime.of(2016, Month.JANUARY, 15, 0, 0).toInstant(ZoneOffset.UTC),
+                LocalDateTime.of(2016, Month.JANUARY, 20, 0, 0).toInstant(ZoneOffset.UTC),
+                LocalDateTime.of(2016, Month.MARCH, 1, 0, 0).toInstant(ZoneOffset.UTC));
+        Measure measure = new Measure("measure", Double.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(measure, Arrays.asList(1., 3., 5.));
+
+        DataFrame monthly = dataFrame.resample(ChronoUnit.MONTHS, ZoneOffset.UTC, Aggregation.MEAN);
+
+        assertEquals(3, monthly.size());
+        assertEquals(LocalDateTime.of(2016, Month.FEBRUARY, 1, 0, 0).toInstant(ZoneOffset.UTC),
+                monthly.getRow(1).getDatetime());
+        assertArrayEquals(new double[]{2., Double.NaN, 5.},
+                monthly.getDoubleColumn(measure), 1e-12);
+    }
+
+    @Test
+    public void downsampleColumnsTest() {
+        final int n = 10000;
+        List<Instant> timestamps = new ArrayList<>(n);
+        List<Double> first = new ArrayList<>(n);
+        List<Integer> second = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            timestamps.add(Instant.ofEpochSecond(i));
+            first.add(i == 1234 ? -50.0 : 0.0);
+            second.add(i % 100);
+        }
+        Measure firstMeasure = new Measure("first", Double.class);
+        Measure secondMeasure = new Measure("second", Integer.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(firstMeasure, first);
+        dataFrame.addColumn(secondMeasure, second);
+
+        Map<Measure, TimeSeries<Number>> downsampled
+                = dataFrame.downsample(100, Downsampling.MIN_MAX);
+
+        assertEquals(Arrays.asList(firstMeasure, secondMeasure),
+                new ArrayList<>(downsampled.keySet()));
+        TimeSeries<Number> firstDownsampled = downsampled.get(firstMeasure);
+        assertTrue(firstDownsampled.size() <= 100);
+        assertTrue(firstDownsampled.getValues().contains(-50.0));
+        TimeSeries<Number> secondDownsampled = downsampled.get(secondMeasure);
+        assertEquals(Integer.class, secondDownsampled.getDataType());
+        assertEquals(100, secondDownsampled.size());
+        assertEquals(0, secondDownsampled.getValues().get(0));
+        assertEquals(99, secondDownsampled.getValues().get(1));
+    }
+
+    @Test
+    public void fromCsvProjectionTest() throws IOException {
+        List<Instant> timestamps = Arrays.asList(
+                LocalDateTime.of(2016, Month.MARCH, 15, 12, 10).toInstant(ZoneOffset.UTC),
+                LocalDateTime.of(2016, Month.MARCH, 15, 12, 20).toInstant(ZoneOffset.UTC));
+        DataFrame expected = new DataFrame(timestamps);
+        expected.addColumn(new Measure("first", Double.class), Arrays.asList(2., 3.));
+        expected.addColumn(new Measure("third", Integer.class), Arrays.asList(20, 30));
+
+        String csv = "datetime,first,second,third\n"
+                + "2016-03-15 12:00:00,1.0,not a number,10\n"
+                + "2016-03-15 12:10:00,2.0,not a number,20\n"
+                + "2016-03-15 12:20:00,3.0,not a number,30\n"
+                + "2016-03-15 12:30:00,4.0,not a number,40";
+
+        DataFrame actual = DataFrame.fromCsv(new StringReader(csv),
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+                ZoneOffset.UTC,
+                Arrays.asList(Double.class, Double.class, Integer.class),
+                new HashSet<>(Arrays.asList("third", "first")),
+                timestamps.get(0),
+                timestamps.get(1));
+
+        assertEquals(expected, actual);
+        assertEquals(Arrays.asList(new Measure("first", Double.class),
+                new Measure("third", Integer.class)), actual.getColumns());
+
+        DataFrame all = DataFrame.fromCsv(new StringReader(csv),
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+                ZoneOffset.UTC,
+                Collections.singleton("first"));
+        assertEquals(4, all.size());
+        assertEquals(1, all.getColumns().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromCsvUnknownColumnTest() throws IOException {
+        String csv = "datetime,first\n"
+                + "2016-03-15 12:00:00,1.0\n";
+        DataFrame.fromCsv(new StringReader(csv),
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+                ZoneOffset.UTC,
+                Collections.singleton("second"));
+    }
+
+    @Test
+    public void fromCsvFilesTest() throws IOException {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        List<Path> files = new ArrayList<>();
+        DataFrame expected = null;
+        for (int day = 1; day <= 5; ++day) {
+            StringBuilder builder = new StringBuilder("datetime,first,second\n");
+            for (int hour = 0; hour < 24; ++hour) {
+                builder.append(String.format("2016-03-%02d %02d:00:00,%d,%d%n",
+                        day, hour, day * 100 + hour, hour));
+            }
+            Path file = folder.newFile("day" + day + ".csv").toPath();
+            Files.write(file, builder.toString().getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+            DataFrame frame = DataFrame.fromCsv(new StringReader(builder.toString()),
+                    formatter, ZoneOffset.UTC, Arrays.asList(Double.class, Integer.class));
+            if (expected == null) {
+                expected = frame;
+            } else {
+                expected.append(frame);
+            }
+        }
+        Collections.shuffle(files, new Random(3));
+
+        DataFrame actual = DataFrame.fromCsvFiles(files, formatter, ZoneOffset.UTC,
+                Arrays.asList(Double.class, Integer.class), null, 2);
+
+        assertEquals(expected, actual);
+        assertEquals(120, actual.size());
+        assertEquals(LocalDateTime.of(2016, Month.MARCH, 1, 0, 0).toInstant(ZoneOffset.UTC),
+                actual.getRow(0).getDatetime());
+    }
+
+    @Test
+    public void columnViewTest() {
+        List<Instant> timestamps = Arrays.asList(
+                Instant.ofEpochSecond(0), Instant.ofEpochSecond(60));
+        Measure measure = new Measure("measure", Double.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(measure, Arrays.asList(1., 2.));
+
+        TimeSeries<Number> view = dataFrame.getColumnView(measure);
+        List<Measure> columns = dataFrame.getColumnsView();
+        DataFrame copy = dataFrame.copy();
+
+        assertEquals(dataFrame.getColumn(measure), view);
+        Measure other = new Measure("other", Integer.class);
+        dataFrame.addColumn(other, Arrays.asList(3, 4));
+        DataFrame more = new DataFrame(Arrays.asList(
+                Instant.ofEpochSecond(120), Instant.ofEpochSecond(180)));
+        more.addColumn(measure, Arrays.asList(5., 6.));
+        more.addColumn(other, Arrays.asList(7, 8));
+        dataFrame.append(more);
+        assertEquals(Arrays.asList(measure, other), columns);
+        assertEquals(4, view.size());
+        assertEquals(Collections.singletonList(measure), copy.getColumns());
+        assertEquals(2, copy.size());
+
+        try {
+            view.addReading(new Reading<>(Instant.ofEpochSecond(240), 9., Number.class));
+            fail("A view cannot be modified");
+        } catch (UnsupportedOperationException e) {
+        }
+        TimeSeries<Number> independent = view.copy();
+        independent.addReading(new Reading<>(Instant.ofEpochSecond(240), 9., Number.class));
+        assertEquals(5, independent.size());
+        assertEquals(4, view.size());
+    }
+
+    @Test
+    public void ordinalAccessTest() {
+        List<Instant> timestamps = Arrays.asList(
+                Instant.ofEpochSecond(0), Instant.ofEpochSecond(60));
+        Measure first = new Measure("first", Double.class);
+        Measure second = new Measure("second", Integer.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(first, Arrays.asList(1.5, 2.5));
+        dataFrame.addColumn(second, Arrays.asList(3, null));
+
+        assertEquals(0, dataFrame.columnIndex(first));
+        assertEquals(1, dataFrame.columnIndex(second));
+        assertEquals(-1, dataFrame.columnIndex(new Measure("third", Double.class)));
+        assertEquals(2.5, dataFrame.getDouble(0, 1), 0.0);
+        assertEquals(3, dataFrame.getValue(1, 0));
+        assertTrue(Double.isNaN(dataFrame.getDouble(1, 1)));
+
+        dataFrame.addColumn(first, Arrays.asList(4.5, 5.5));
+        assertEquals(0, dataFrame.columnIndex(first));
+        assertEquals(5.5, dataFrame.getDouble(0, 1), 0.0);
+        assertEquals(5.5, dataFrame.getLastRow().getValue(0));
+        assertNull(dataFrame.getLastRow().getValue(1));
+
+        DataFrame reordered = new DataFrame(timestamps);
+        reordered.addColumn(second, Arrays.asList(3, null));
+        reordered.addColumn(first, Arrays.asList(4.5, 5.5));
+        assertEquals(dataFrame, reordered);
+        assertEquals(dataFrame.hashCode(), reordered.hashCode());
+    }
+
+    @Test
+    public void categoricalColumnTest() {
+        List<Instant> timestamps = Arrays.asList(
+                Instant.ofEpochSecond(0), Instant.ofEpochSecond(60),
+                Instant.ofEpochSecond(120), Instant.ofEpochSecond(180));
+        Measure mode = new Measure("mode", String.class);
+        Measure power = new Measure("power", Double.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addCategoricalColumn(mode, Arrays.asList("heating", "idle", "heating", null));
+        dataFrame.addColumn(power, Arrays.asList(10.0, 1.0, 14.0, 3.0));
+
+        assertEquals("idle", dataFrame.getValue(0, 1));
+        assertEquals(Arrays.asList("heating", "idle"),
+                dataFrame.getCategoricalColumn(mode).getDictionary());
+
+        DataFrame heating = dataFrame.filter(mode, "heating");
+        assertEquals(2, heating.size());
+        assertEquals(Instant.ofEpochSecond(120), heating.getLastRow().getDatetime());
+        assertArrayEquals(new double[]{10.0, 14.0}, heating.getDoubleColumn(power), 0.0);
+        assertEquals(0, dataFrame.filter(mode, "cooling").size());
+
+        Map<String, Map<Measure, Double>> means = dataFrame.groupBy(mode, Aggregation.MEAN);
+        assertEquals(Arrays.asList("heating", "idle"), new ArrayList<>(means.keySet()));
+        assertEquals(12.0, means.get("heating").get(power), 0.0);
+        assertEquals(1.0, means.get("idle").get(power), 0.0);
+        assertFalse(means.get("idle").containsKey(mode));
+
+        DataFrame plain = new DataFrame(timestamps);
+        plain.addColumn(mode, Arrays.asList("heating", "idle", "heating", null));
+        plain.addColumn(power, Arrays.asList(10.0, 1.0, 14.0, 3.0));
+        assertEquals(plain, dataFrame);
+        assertEquals(dataFrame, dataFrame.copy());
+    }
+
+    @Test
+    public void concatTest() {
+        Measure first = new Measure("first", Double.class);
+        Measure second = new Measure("second", Integer.class);
+        Measure mode = new Measure("mode", String.class);
+        DataFrame early = new DataFrame(Arrays.asList(
+                Instant.ofEpochSecond(0), Instant.ofEpochSecond(120), Instant.ofEpochSecond(240)));
+        early.addColumn(first, Arrays.asList(1.0, 2.0, 3.0));
+        early.addColumn(second, Arrays.asList(10, 20, 30));
+        DataFrame late = new DataFrame(Arrays.asList(
+                Instant.ofEpochSecond(60), Instant.ofEpochSecond(120), Instant.ofEpochSecond(300)));
+        late.addCategoricalColumn(mode, Arrays.asList("a", "b", "a"));
+        late.addColumn(first, Arrays.asList(4.0, 5.0, 6.0));
+
+        DataFrame result = DataFrame.concat(Arrays.asList(late, new DataFrame(new ArrayList<>()), early));
+
+        assertEquals(6, result.size());
+        assertEquals(Arrays.asList(mode, first, second), result.getColumns());
+        List<Instant> datetimes = new ArrayList<>();
+        for (int i = 0; i < result.size(); ++i) {
+            datetimes.add(result.getRow(i).getDatetime());
+        }
+        assertEquals(Arrays.asList(
+                Instant.ofEpochSecond(0), Instant.ofEpochSecond(60), Instant.ofEpochSecond(120),
+                Instant.ofEpochSecond(120), Instant.ofEpochSecond(240), Instant.ofEpochSecond(300)),
+                datetimes);
+        assertArrayEquals(new double[]{1.0, 4.0, 5.0, 2.0, 3.0, 6.0}, result.getDoubleColumn(first), 0.0);
+        assertEquals(Arrays.asList(10, null, null, 20, 30, null), result.getColumn(second).getValues());
+        assertEquals(Arrays.asList(null, "a", "b", null, null, "a"),
+                result.getCategoricalColumn(mode));
+        assertEquals(0, DataFrame.concat(new ArrayList<>()).size());
+    }
+
+    @Test
+    public void sortAndDeduplicateTest() {
+        Measure power = new Measure("power", Double.class);
+        Measure count = new Measure("count", Integer.class);
+        Measure mode = new Measure("mode", String.class);
+        DataFrame dataFrame = new DataFrame(Arrays.asList(
+                Instant.ofEpochSecond(60), Instant.ofEpochSecond(0),
+                Instant.ofEpochSecond(60), Instant.ofEpochSecond(0)));
+        dataFrame.addColumn(power, Arrays.asList(3.0, 1.0, Double.NaN, 2.0));
+        dataFrame.addColumn(count, Arrays.asList(4, 1, 5, 2));
+        dataFrame.addCategoricalColumn(mode, Arrays.asList("c", "a", "d", "b"));
+
+        DataFrame sorted = dataFrame.sortByTime();
+        assertEquals(Instant.ofEpochSecond(0), sorted.getRow(1).getDatetime());
+        assertArrayEquals(new double[]{1.0, 2.0, 3.0, Double.NaN}, sorted.getDoubleColumn(power), 0.0);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), sorted.getCategoricalColumn(mode));
+
+        DataFrame last = dataFrame.deduplicate(Deduplication.LAST);
+        assertEquals(2, last.size());
+        assertEquals(Instant.ofEpochSecond(60), last.getLastRow().getDatetime());
+        assertEquals(Arrays.asList(2.0, 5, "d"), Arrays.asList(
+                last.getValue(0, 0), last.getValue(1, 1), last.getValue(2, 1)));
+
+        DataFrame mean = dataFrame.deduplicate(Deduplication.MEAN);
+        assertArrayEquals(new double[]{1.5, 3.0}, mean.getDoubleColumn(power), 0.0);
+        assertEquals(2, mean.getValue(1, 0));
+        assertEquals(5, mean.getValue(1, 1));
+        assertEquals(Arrays.asList("b", "d"), mean.getCategoricalColumn(mode));
+    }
+
+    @Test
+    public void resampleCalendarMixedColumnsTest() {
+        List<Instant> timestamps = Arrays.asList(
+                Instant.ofEpochSecond(0), Instant.ofEpochSecond(1800),
+                Instant.ofEpochSecond(3600), Instant.ofEpochSecond(5400));
+        Measure power = new Measure("power", Double.class);
+        Measure mode = new Measure("mode", String.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(power, Arrays.asList(1., 3., 5., 7.));
+        dataFrame.addCategoricalColumn(mode, Arrays.asList("a", "b", "a", "b"));
+
+        DataFrame hourly = dataFrame.resample(ChronoUnit.HOURS, ZoneOffset.UTC, Aggregation.MEAN);
+
+        assertEquals(Arrays.asList(power), hourly.getColumns());
+        assertArrayEquals(new double[]{2., 6.}, hourly.getDoubleColumn(power), 0.0);
+    }
+
+    @Test
+    public void fillGapsMixedColumnsTest() {
+        List<Instant> timestamps = Arrays.asList(
+                Instant.ofEpochSecond(60), Instant.ofEpochSecond(180), Instant.ofEpochSecond(240));
+        Measure power = new Measure("power", Double.class);
+        Measure mode = new Measure("mode", String.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(power, Arrays.asList(1., 3., 4.));
+        dataFrame.addCategoricalColumn(mode, Arrays.asList("a", "b", "c"));
+
+        DataFrame filled = dataFrame.fillGaps(Duration.ofMinutes(1), Interpolation.LINEAR);
+        assertEquals(Arrays.asList(power, mode), filled.getColumns());
+        assertArrayEquals(new double[]{1., 2., 3., 4.}, filled.getDoubleColumn(power), 1e-12);
+        assertEquals(Arrays.asList("a", "a", "b", "c"), filled.getCategoricalColumn(mode));
+    }
+
+    @Test
+    public void resampleToMixedColumnsTest() {
+        List<Instant> timestamps = Arrays.asList(
+                Instant.ofEpochSecond(60), Instant.ofEpochSecond(180), Instant.ofEpochSecond(240));
+        Measure power = new Measure("power", Double.class);
+        Measure mode = new Measure("mode", String.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addColumn(power, Arrays.asList(1., 3., 4.));
+        dataFrame.addColumn(mode, Arrays.asList("a", "b", "c"));
+
+        DataFrame aligned = dataFrame.resampleTo(Arrays.asList(
+                Instant.ofEpochSecond(0), Instant.ofEpochSecond(150), Instant.ofEpochSecond(240)));
+
+        assertArrayEquals(new double[]{Double.NaN, 2.5, 4.}, aligned.getDoubleColumn(power), 1e-12);
+        assertEquals(Arrays.asList(null, "a", "c"), aligned.getColumn(mode).getValues());
+    }
+
+    @Test
+    public void downsampleMixedColumnsTest() {
+        List<Instant> timestamps = new ArrayList<>();
+        List<Double> power = new ArrayList<>();
+        List<String> modes = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            timestamps.add(Instant.ofEpochSecond(i));
+            power.add((double) i);
+            modes.add(i % 2 == 0 ? "even" : "odd");
+        }
+        Measure powerMeasure = new Measure("power", Double.class);
+        Measure modeMeasure = new Measure("mode", String.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addCategoricalColumn(modeMeasure, modes);
+        dataFrame.addColumn(powerMeasure, power);
+
+        Map<Measure, TimeSeries<Number>> downsampled
+                = dataFrame.downsample(10, Downsampling.LARGEST_TRIANGLE_THREE_BUCKETS);
+
+        assertEquals(Arrays.asList(powerMeasure), new ArrayList<>(downsampled.keySet()));
+        assertEquals(10, downsampled.get(powerMeasure).size());
+    }
+
+    @Test
+    public void interpolateGapsMixedColumnsTest() {
+        List<Instant> timestamps = Arrays.asList(
+                Instant.ofEpochSecond(0), Instant.ofEpochSecond(60), Instant.ofEpochSecond(120));
+        Measure power = new Measure("power", Double.class);
+        Measure mode = new Measure("mode", String.class);
+        DataFrame dataFrame = new DataFrame(timestamps);
+        dataFrame.addCategoricalColumn(mode, Arrays.asList("a", null, "b"));
+        dataFrame.addColumn(power, Arrays.asList(1., Double.NaN, 3.));
+
+        DataFrame interpolated = dataFrame.interpolateGaps();
+
+        assertArrayEquals(new double[]{1., 2., 3.}, interpolated.getDoubleColumn(power), 1e-12);
+        assertEquals(Arrays.asList("a", null, "b"), interpolated.getCategoricalColumn(mode));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resampleCalendarUnsortedTest() {
+        DataFrame dataFrame = new DataFrame(Arrays.asList(
+                Instant.ofEpochSecond(3600), Instant.ofEpochSecond(0), Instant.ofEpochSecond(7200)));
+        dataFrame.addColumn(new Measure("measure", Double.class), Arrays.asList(1., 2., 3.));
+
+        dataFrame.resample(ChronoUnit.HOURS, ZoneOffset.UTC, Aggregation.SUM);
+    }
+
+    @Test
+    public void measureMetadataEqualityTest() {
+        Measure p = new Measure("temperature", Double.class, new HashMap<>());
+        p.hashCode();
+        p.metadata.put("unit", "C");
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("unit", "C");
+        Measure q = new Measure("temperature", Double.class, metadata);
+
+        assertEquals(p, q);
+        assertEquals(p.hashCode(), q.hashCode());
+    }
 }
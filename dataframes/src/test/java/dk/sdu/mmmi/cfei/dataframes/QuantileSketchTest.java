@@ -0,0 +1,76 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author cgim
+ */
+public class QuantileSketchTest {
+
+    @Test
+    public void smallExactTest() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : new double[]{5., 1., 4., 2., 3., Double.NaN}) {
+            sketch.accept(value);
+        }
+
+        assertEquals(5, sketch.getCount());
+        assertArrayEquals(
+                new double[]{1., 1., 3., 5., 5.},
+                sketch.quantiles(0.0, 0.2, 0.5, 0.99, 1.0),
+                0.0);
+    }
+
+    @Test
+    public void accuracyTest() {
+        final int n = 1000000;
+        List<Double> values = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            values.add((double) i);
+        }
+        Collections.shuffle(values, new Random(42));
+
+        QuantileSketch sketch = new QuantileSketch();
+        values.forEach(sketch::accept);
+
+        double[] qs = {0.01, 0.25, 0.5, 0.75, 0.95, 0.99};
+        double[] estimates = sketch.quantiles(qs);
+        for (int i = 0; i < qs.length; ++i) {
+            assertEquals(qs[i] * n, estimates[i], 0.02 * n);
+        }
+        assertEquals(0.0, sketch.getMin(), 0.0);
+        assertEquals(n - 1, sketch.getMax(), 0.0);
+        assertEquals(0.0, sketch.quantile(0.0), 0.0);
+        assertEquals(n - 1, sketch.quantile(1.0), 0.0);
+    }
+
+    @Test
+    public void mergeTest() {
+        final int n = 200000;
+        Random random = new Random(7);
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        for (int i = 0; i < n; ++i) {
+            first.accept(random.nextDouble());
+            second.accept(1.0 + random.nextDouble());
+        }
+
+        QuantileSketch merged = first.merge(second);
+
+        assertEquals(2 * n, merged.getCount());
+        assertEquals(1.0, merged.quantile(0.5), 0.05);
+        assertEquals(0.5, merged.quantile(0.25), 0.05);
+        assertEquals(1.9, merged.quantile(0.95), 0.05);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidQuantileTest() {
+        new QuantileSketch().quantile(1.5);
+    }
+}
@@ -0,0 +1,85 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author cgim
+ */
+public class RangeQueryIndexTest {
+
+    @Test
+    public void aggregateTest() {
+        Random random = new Random(7);
+        final int n = 10007;
+        List<Instant> timestamps = new ArrayList<>(n);
+        List<Double> values = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            timestamps.add(Instant.ofEpochSecond(10 * i));
+            values.add(random.nextInt(50) == 0 ? Double.NaN : random.nextDouble() * 100);
+        }
+        TimeSeries<Double> timeSeries = new TimeSeries<>(timestamps, values, Double.class);
+        RangeQueryIndex index = timeSeries.rangeQueryIndex();
+
+        for (int q = 0; q < 500; ++q) {
+            int from = random.nextInt(n + 1);
+            int to = from + random.nextInt(n + 1 - from);
+            long count = 0;
+            double sum = 0.0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; ++i) {
+                double value = values.get(i);
+                if (!Double.isNaN(value)) {
+                    count += 1;
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+
+            RangeAggregate aggregate = index.aggregate(from, to);
+
+            assertEquals(count, aggregate.getCount());
+            assertEquals(sum, aggregate.getSum(), 1e-7);
+            if (count > 0) {
+                assertEquals(min, aggregate.getMin(), 0.0);
+                assertEquals(max, aggregate.getMax(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void aggregateInstantTest() {
+        List<Instant> timestamps = new ArrayList<>();
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            timestamps.add(Instant.ofEpochSecond(60 * i));
+            values.add(i);
+        }
+        RangeQueryIndex index = new RangeQueryIndex(
+                new TimeSeries<>(timestamps, values, Integer.class));
+
+        assertEquals(3, index.indexOf(Instant.ofEpochSecond(150)));
+        RangeAggregate aggregate = index.aggregate(
+                Instant.ofEpochSecond(150), Instant.ofEpochSecond(361));
+        assertEquals(4, aggregate.getCount());
+        assertEquals(3 + 4 + 5 + 6, aggregate.getSum(), 0.0);
+        assertEquals(3, aggregate.getMin(), 0.0);
+        assertEquals(6, aggregate.getMax(), 0.0);
+        assertEquals(0, index.aggregate(
+                Instant.ofEpochSecond(1000), Instant.ofEpochSecond(0)).getCount());
+        assertEquals(10, index.aggregate(
+                Instant.ofEpochSecond(-1000), Instant.ofEpochSecond(10000)).getCount());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void invalidRangeTest() {
+        new RangeQueryIndex(new long[]{1, 2}, new double[]{1., 2.}).aggregate(1, 3);
+    }
+}
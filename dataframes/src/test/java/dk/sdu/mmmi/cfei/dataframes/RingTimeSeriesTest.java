@@ -0,0 +1,67 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author cgim
+ */
+public class RingTimeSeriesTest {
+
+    @Test
+    public void capacityEvictionTest() {
+        RingTimeSeries ring = new RingTimeSeries(3);
+        for (int i = 0; i < 5; ++i) {
+            ring.addReading(i * 1000L, i);
+        }
+
+        assertEquals(3, ring.size());
+        assertEquals(2000L, ring.getEpochMillis(0));
+        assertEquals(4.0, ring.getLastReading().getValue(), 0.0);
+        assertEquals(Arrays.asList(2.0, 3.0, 4.0), ring.getValues());
+    }
+
+    @Test
+    public void durationEvictionTest() {
+        RingTimeSeries ring = new RingTimeSeries(100, Duration.ofSeconds(10));
+        for (int i = 0; i < 30; ++i) {
+            ring.addReading(i * 1000L, i);
+        }
+
+        assertEquals(11, ring.size());
+        assertEquals(19.0, ring.getDouble(0), 0.0);
+        assertEquals(29.0, ring.getDouble(10), 0.0);
+    }
+
+    @Test
+    public void resampleTest() {
+        RingTimeSeries ring = new RingTimeSeries(7);
+        for (int i = 0; i < 10; ++i) {
+            ring.addReading(
+                    LocalDateTime.of(2016, Month.MARCH, 15, 11, 30)
+                    .plusMinutes(10 * i)
+                    .toInstant(ZoneOffset.UTC),
+                    i - 2.);
+        }
+
+        Instant[] timestampsExpectedArray = {
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 0).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 20).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2016, Month.MARCH, 15, 12, 40).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2016, Month.MARCH, 15, 13, 0).toInstant(ZoneOffset.UTC),};
+        Double[] expectedArray = {1., 3., 5., 7.};
+        ArrayList<Instant> timestampsExpected = new ArrayList<>(Arrays.asList(timestampsExpectedArray));
+        ArrayList<Double> valuesExpected = new ArrayList<>(Arrays.asList(expectedArray));
+        TimeSeries<Double> expected = new TimeSeries<>(timestampsExpected, valuesExpected, Double.class);
+
+        assertEquals(expected, ring.resample(Duration.ofMinutes(20)));
+    }
+}
@@ -0,0 +1,143 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author cgim
+ */
+public class RollupIndexTest {
+
+    @Test
+    public void aggregateTest() {
+        Random random = new Random(42);
+        final int n = 200000;
+        long[] datetimes = new long[n];
+        double[] values = new double[n];
+        long t = Instant.parse("2016-03-15T10:17:23.456Z").toEpochMilli();
+        RollupIndex index = new RollupIndex();
+        for (int i = 0; i < n; ++i) {
+            t += 1 + random.nextInt(20000);
+            datetimes[i] = t;
+            values[i] = i % 1000 == 0 ? Double.NaN : random.nextGaussian();
+            index.addReading(t, values[i]);
+        }
+        assertEquals(n - n / 1000, index.size());
+
+        for (int q = 0; q < 200; ++q) {
+            long start = datetimes[0] - 60000 + (long) (random.nextDouble() * (t - datetimes[0]));
+            long stop = start + (long) (random.nextDouble() * (t - start + 120000));
+            long count = 0;
+            double sum = 0.0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; ++i) {
+                // Readings are counted by the start of their minute.
+                final long minute = Math.floorDiv(datetimes[i], 60000L) * 60000L;
+                if (minute >= start && minute < stop && !Double.isNaN(values[i])) {
+                    count += 1;
+                    sum += values[i];
+                    min = Math.min(min, values[i]);
+                    max = Math.max(max, values[i]);
+                }
+            }
+
+            RangeAggregate aggregate = index.aggregate(start, stop);
+
+            assertEquals(count, aggregate.getCount());
+            assertEquals(sum, aggregate.getSum(), 1e-9 * Math.max(1, count));
+            if (count > 0) {
+                assertEquals(min, aggregate.getMin(), 0.0);
+                assertEquals(max, aggregate.getMax(), 0.0);
+                assertEquals(sum / count, aggregate.getMean(), 1e-9);
+            } else {
+                assertTrue(Double.isNaN(aggregate.getMax()));
+            }
+        }
+    }
+
+    @Test
+    public void incrementalTest() {
+        RollupIndex index = new RollupIndex(Duration.ofSeconds(10), Duration.ofMinutes(1));
+        Instant start = Instant.parse("2017-01-01T00:00:00Z");
+        index.addReading(start, 1.0);
+        index.addReading(start.plusSeconds(30), 5.0);
+
+        assertEquals(6.0, index.aggregate(start, start.plusSeconds(3600)).getSum(), 0.0);
+
+        index.addReading(start.plusSeconds(90), -2.0);
+        RangeAggregate aggregate = index.aggregate(start, start.plusSeconds(3600));
+        assertEquals(3, aggregate.getCount());
+        assertEquals(-2.0, aggregate.getMin(), 0.0);
+        assertEquals(5.0, aggregate.getMax(), 0.0);
+        assertEquals(1, index.aggregate(start.plusSeconds(1), start.plusSeconds(31)).getCount());
+        assertEquals(0, index.aggregate(start.plusSeconds(100), start).getCount());
+    }
+
+    @Test
+    public void exactTest() {
+        Random random = new Random(5);
+        RollupIndex index = new RollupIndex(
+                Duration.ofMillis(1), Duration.ofSeconds(1), Duration.ofHours(1));
+        final int n = 20000;
+        long[] datetimes = new long[n];
+        double[] values = new double[n];
+        long t = 0;
+        for (int i = 0; i < n; ++i) {
+            t += random.nextInt(3000);
+            datetimes[i] = t;
+            values[i] = random.nextDouble();
+            index.addReading(t, values[i]);
+        }
+
+        for (int q = 0; q < 100; ++q) {
+            long start = (long) (random.nextDouble() * t);
+            long stop = start + (long) (random.nextDouble() * (t - start + 1));
+            long count = 0;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; ++i) {
+                if (datetimes[i] >= start && datetimes[i] < stop) {
+                    count += 1;
+                    max = Math.max(max, values[i]);
+                }
+            }
+            RangeAggregate aggregate = index.aggregate(start, stop);
+            assertEquals(count, aggregate.getCount());
+            if (count > 0) {
+                assertEquals(max, aggregate.getMax(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void sparseTest() {
+        RollupIndex index = new RollupIndex();
+        Instant start = Instant.parse("2000-01-01T00:00:00Z");
+        Instant end = Instant.parse("2030-01-01T00:00:00Z");
+        index.addReading(start, 1.0);
+        index.addReading(start.plusSeconds(90), 2.0);
+        index.addReading(end, 4.0);
+
+        assertEquals(7.0, index.aggregate(start, end.plusSeconds(60)).getSum(), 0.0);
+        assertEquals(3.0, index.aggregate(start, end).getSum(), 0.0);
+        assertEquals(6.0, index.aggregate(start.plusSeconds(60), end.plusSeconds(60)).getSum(), 0.0);
+        assertEquals(4.0, index.aggregate(start.plusSeconds(120), end.plusSeconds(1)).getMax(), 0.0);
+        assertEquals(0, index.aggregate(start.plusSeconds(120), end).getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unorderedTest() {
+        RollupIndex index = new RollupIndex();
+        index.addReading(1000L, 1.0);
+        index.addReading(999L, 1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notNestedTest() {
+        new RollupIndex(Duration.ofMinutes(2), Duration.ofMinutes(3));
+    }
+}
@@ -0,0 +1,113 @@
+package dk.sdu.mmmi.cfei.dataframes;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author cgim
+ */
+public class SelectionTest {
+
+    @Before
+    public void setUp() {
+        List<Instant> timestamps = new ArrayList<>();
+        for (int i = 0; i < 6; ++i) {
+            timestamps.add(Instant.ofEpochSecond(3600 * i));
+        }
+        this.dataFrame = new DataFrame(timestamps);
+        this.dataFrame.addColumn(this.power, Arrays.asList(10.0, 50.0, Double.NaN, 80.0, 20.0, 60.0));
+        this.dataFrame.addCategoricalColumn(this.mode,
+                Arrays.asList("idle", "heating", "idle", "heating", "idle", "heating"));
+    }
+
+    @Test
+    public void whereTest() {
+        Selection high = this.dataFrame.where(this.power, p -> p > 40.0);
+
+        assertEquals(3, high.count());
+        assertArrayEquals(new int[]{1, 3, 5}, high.indices());
+        assertTrue(high.isSelected(3));
+        assertFalse(high.isSelected(2));
+        assertArrayEquals(new double[]{50.0, 80.0, 60.0}, high.getDoubleColumn(this.power), 0.0);
+
+        Selection chained = high.where(this.power, p -> p < 70.0);
+        assertArrayEquals(new int[]{1, 5}, chained.indices());
+        assertEquals(3, high.count());
+    }
+
+    @Test
+    public void combineTest() {
+        Selection low = this.dataFrame.where(this.power, p -> p < 15.0);
+        Selection heating = this.dataFrame.where(this.mode, "heating");
+
+        assertArrayEquals(new int[]{0, 1, 3, 5}, low.or(heating).indices());
+        assertArrayEquals(new int[]{}, low.and(heating).indices());
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5}, low.negate().indices());
+        assertArrayEquals(new int[]{3}, heating.where(this.power, p -> p > 70.0).indices());
+        assertArrayEquals(new int[]{0, 2, 4}, this.dataFrame.selectAll().where(this.mode, "idle").indices());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentDataFramesTest() {
+        this.dataFrame.selectAll().and(this.dataFrame.copy().selectAll());
+    }
+
+    @Test
+    public void aggregateTest() {
+        Selection heating = this.dataFrame.where(this.mode, "heating");
+
+        SummaryStatistics statistics = heating.describe().get(this.power);
+        assertEquals(3, statistics.getCount());
+        assertEquals(63.333333, statistics.getMean(), 1e-6);
+
+        CalendarProfile profile = heating.groupBy(CalendarKey.HOUR_OF_DAY, Aggregation.MAX);
+        double[] max = profile.getValues(this.power, Aggregation.MAX);
+        assertEquals(80.0, max[3], 0.0);
+        assertTrue(Double.isNaN(max[0]));
+
+        Map<String, Map<Measure, Double>> sums = this.dataFrame.where(this.power, p -> p > 15.0)
+                .groupBy(this.mode, Aggregation.SUM);
+        assertEquals(20.0, sums.get("idle").get(this.power), 0.0);
+        assertEquals(190.0, sums.get("heating").get(this.power), 0.0);
+    }
+
+    @Test
+    public void deriveTest() {
+        this.dataFrame.where(this.mode, "idle").derive("double", "2 * power");
+
+        double[] derived = this.dataFrame.getDoubleColumn(new Measure("double", Double.class));
+        assertEquals(20.0, derived[0], 0.0);
+        assertTrue(Double.isNaN(derived[1]));
+        assertTrue(Double.isNaN(derived[2]));
+        assertEquals(40.0, derived[4], 0.0);
+    }
+
+    @Test
+    public void exportTest() throws IOException {
+        Selection heating = this.dataFrame.where(this.mode, "heating");
+        DataFrame materialized = heating.materialize();
+
+        assertEquals(3, materialized.size());
+        assertEquals(Instant.ofEpochSecond(3 * 3600), materialized.getRow(1).getDatetime());
+        assertEquals("heating", materialized.getValue(1, 2));
+
+        StringBuilder selected = new StringBuilder();
+        heating.toCsv(selected);
+        StringBuilder copied = new StringBuilder();
+        materialized.toCsv(copied);
+        assertEquals(copied.toString(), selected.toString());
+        assertEquals(4, selected.toString().split("\r\n").length);
+    }
+
+    private DataFrame dataFrame;
+    private final Measure power = new Measure("power", Double.class);
+    private final Measure mode = new Measure("mode", String.class);
+}
@@ -3,10 +3,16 @@ package dk.sdu.mmmi.cfei.dataframes;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -248,4 +254,478 @@ public class TimeSeriesTest {
 
         assertEquals(third, first);
     }
+
+    @Test
+    public void removeReadingsTest() {
+        Instant[] timestampsArray = {
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 55).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 59).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 8).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 28).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 17, 8).toInstant(ZoneOffset.UTC)};
+        Double[] valuesArray = {24.6, 128.7, 26.3, 113.8, 27.4};
+        ArrayList<Instant> timestamps = new ArrayList<>(Arrays.asList(timestampsArray));
+        ArrayList<Double> values = new ArrayList<>(Arrays.asList(valuesArray));
+        TimeSeries<Double> timeSeries = new TimeSeries<>(timestamps, values, Double.class);
+
+        Instant[] expectedTimestampsArray = {
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 55).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 8).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 17, 8).toInstant(ZoneOffset.UTC)};
+        Double[] expectedValuesArray = {24.6, 26.3, 27.4};
+        ArrayList<Instant> expectedTimestamps = new ArrayList<>(Arrays.asList(expectedTimestampsArray));
+        ArrayList<Double> expectedValues = new ArrayList<>(Arrays.asList(expectedValuesArray));
+        TimeSeries<Double> expected = new TimeSeries<>(expectedTimestamps, expectedValues, Double.class);
+
+        timeSeries.removeReadings(reading -> reading.getValue() > 100.0);
+
+        assertEquals(expected, timeSeries);
+    }
+
+    @Test
+    public void removeReadingsPrimitiveTest() {
+        Instant[] timestampsArray = {
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 55).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 59).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 8).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 28).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 17, 8).toInstant(ZoneOffset.UTC)};
+        Double[] valuesArray = {24.6, 28.7, Double.NaN, 13.8, 27.4};
+        ArrayList<Instant> timestamps = new ArrayList<>(Arrays.asList(timestampsArray));
+        ArrayList<Double> values = new ArrayList<>(Arrays.asList(valuesArray));
+        TimeSeries<Double> timeSeries = new TimeSeries<>(timestamps, values, Double.class);
+
+        Instant[] expectedTimestampsArray = {
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 59).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 28).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 17, 8).toInstant(ZoneOffset.UTC)};
+        Double[] expectedValuesArray = {28.7, 13.8, 27.4};
+        ArrayList<Instant> expectedTimestamps = new ArrayList<>(Arrays.asList(expectedTimestampsArray));
+        ArrayList<Double> expectedValues = new ArrayList<>(Arrays.asList(expectedValuesArray));
+        TimeSeries<Double> expected = new TimeSeries<>(expectedTimestamps, expectedValues, Double.class);
+
+        final long first = timestampsArray[0].toEpochMilli();
+        timeSeries.removeReadings((epochMillis, value) -> epochMillis == first || Double.isNaN(value));
+
+        assertEquals(expected, timeSeries);
+    }
+
+    @Test
+    public void forEachTest() {
+        Instant[] timestampsArray = {
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 55).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 59).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 8).toInstant(ZoneOffset.UTC)};
+        Integer[] valuesArray = {24, 28, 26};
+        ArrayList<Instant> timestamps = new ArrayList<>(Arrays.asList(timestampsArray));
+        ArrayList<Integer> values = new ArrayList<>(Arrays.asList(valuesArray));
+        TimeSeries<Integer> timeSeries = new TimeSeries<>(timestamps, values, Integer.class);
+
+        final long[] sumOfDatetimes = {0};
+        final double[] sumOfValues = {0};
+        timeSeries.forEach((epochMillis, value) -> {
+            sumOfDatetimes[0] += epochMillis;
+            sumOfValues[0] += value;
+        });
+
+        long expectedSumOfDatetimes = 0;
+        for (int i = 0; i < timeSeries.size(); ++i) {
+            expectedSumOfDatetimes += timeSeries.getEpochMillis(i);
+        }
+        assertEquals(expectedSumOfDatetimes, sumOfDatetimes[0]);
+        assertEquals(78.0, sumOfValues[0], 0.0);
+
+        Iterator<DoubleReading> iterator = timeSeries.doubleReadings();
+        DoubleReading first = iterator.next();
+        assertEquals(timestampsArray[0], first.getDatetime());
+        DoubleReading second = iterator.next();
+        assertSame(first, second);
+        assertEquals(28.0, second.getValue(), 0.0);
+        assertEquals(28.0, timeSeries.getDouble(1), 0.0);
+    }
+
+    @Test
+    public void computeDifferenceTest() {
+        Instant[] timestampsArray = {
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 55).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 59).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 8).toInstant(ZoneOffset.UTC)};
+        Double[] firstValuesArray = {24.5, 28.5, 26.0};
+        Double[] secondValuesArray = {4.0, 8.0, 6.5};
+        Double[] differenceValuesArray = {20.5, 20.5, 19.5};
+        ArrayList<Instant> timestamps = new ArrayList<>(Arrays.asList(timestampsArray));
+        TimeSeries<Double> first = new TimeSeries<>(
+                timestamps, Arrays.asList(firstValuesArray), Double.class);
+        TimeSeries<Double> second = new TimeSeries<>(
+                timestamps, Arrays.asList(secondValuesArray), Double.class);
+        TimeSeries<Double> expected = new TimeSeries<>(
+                timestamps, Arrays.asList(differenceValuesArray), Double.class);
+
+        assertEquals(expected, TimeSeries.computeDifference(first, second));
+    }
+
+    @Test
+    public void arithmeticTest() {
+        Instant[] timestampsArray = {
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 55).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 59).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 8).toInstant(ZoneOffset.UTC)};
+        Double[] firstValuesArray = {2.0, -4.0, 6.0};
+        Integer[] secondValuesArray = {1, 2, 4};
+        ArrayList<Instant> timestamps = new ArrayList<>(Arrays.asList(timestampsArray));
+        TimeSeries<Double> first = new TimeSeries<>(
+                timestamps, Arrays.asList(firstValuesArray), Double.class);
+        TimeSeries<Integer> second = new TimeSeries<>(
+                timestamps, Arrays.asList(secondValuesArray), Integer.class);
+
+        assertEquals(Arrays.asList(3.0, -2.0, 10.0), first.add(second).getValues());
+        assertEquals(Arrays.asList(1.0, -6.0, 2.0), first.subtract(second).getValues());
+        assertEquals(Arrays.asList(2.0, -8.0, 24.0), first.multiply(second).getValues());
+        assertEquals(Arrays.asList(2.0, -2.0, 1.5), first.divide(second).getValues());
+        assertEquals(Arrays.asList(4.0, -8.0, 12.0), first.multiply(2.0).getValues());
+        assertEquals(Arrays.asList(2.0, 4.0, 6.0), first.abs().getValues());
+        assertEquals(Arrays.asList(2.0, 0.0, 5.0), first.clamp(0.0, 5.0).getValues());
+        assertEquals(timestamps, first.add(1.0).getDatetimes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void arithmeticDifferentSizesTest() {
+        TimeSeries<Double> first = new TimeSeries<>(Double.class);
+        first.addReading(new Reading<>(Instant.EPOCH, 1.0, Double.class));
+        TimeSeries<Double> second = new TimeSeries<>(Double.class);
+
+        first.add(second);
+    }
+
+    @Test
+    public void statsTest() {
+        Instant[] timestampsArray = {
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 55).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 59).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 8).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 15, 28).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 17, 8).toInstant(ZoneOffset.UTC)};
+        Double[] valuesArray = {2.0, 4.0, Double.NaN, 4.0, 6.0};
+        ArrayList<Instant> timestamps = new ArrayList<>(Arrays.asList(timestampsArray));
+        ArrayList<Double> values = new ArrayList<>(Arrays.asList(valuesArray));
+        TimeSeries<Double> timeSeries = new TimeSeries<>(timestamps, values, Double.class);
+
+        SummaryStatistics stats = timeSeries.stats();
+
+        assertEquals(4, stats.getCount());
+        assertEquals(1, stats.getNanCount());
+        assertEquals(4.0, stats.getMean(), 1e-12);
+        assertEquals(8.0 / 3.0, stats.getVariance(), 1e-12);
+        assertEquals(2.0, stats.getMin(), 0.0);
+        assertEquals(6.0, stats.getMax(), 0.0);
+    }
+
+    @Test
+    public void quantilesTest() {
+        List<Instant> timestamps = new ArrayList<>();
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i <= 100; ++i) {
+            timestamps.add(Instant.ofEpochSecond(60L * i));
+            values.add(100 - i);
+        }
+        TimeSeries<Integer> timeSeries = new TimeSeries<>(timestamps, values, Integer.class);
+
+        assertArrayEquals(
+                new double[]{0., 50., 95., 100.},
+                timeSeries.quantiles(0.0, 0.5, 0.95, 1.0),
+                1.0);
+    }
+
+    @Test
+    public void fillMissingTest() {
+        Instant[] timestampsArray = {
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 0).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 10).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 20).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 40).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 12, 50).toInstant(ZoneOffset.UTC),
+            LocalDateTime.of(2015, Month.JANUARY, 5, 13, 0).toInstant(ZoneOffset.UTC)};
+        Integer[] valuesArray = {null, 10, null, null, 40, null};
+        ArrayList<Instant> timestamps = new ArrayList<>(Arrays.asList(timestampsArray));
+        ArrayList<Integer> values = new ArrayList<>(Arrays.asList(valuesArray));
+        TimeSeries<Integer> timeSeries = new TimeSeries<>(timestamps, values, Integer.class);
+
+        assertEquals(2, timeSeries.countValid());
+        assertFalse(timeSeries.validity().isValid(0));
+        assertTrue(timeSeries.validity().isValid(1));
+        assertEquals(Arrays.asList(null, 10, 10, 10, 40, 40),
+                timeSeries.fillForward().getValues());
+        assertEquals(Arrays.asList(10, 10, 40, 40, 40, null),
+                timeSeries.fillBackward().getValues());
+        assertArrayEquals(
+                new double[]{Double.NaN, 10., 17.5, 32.5, 40., Double.NaN},
+                timeSeries.interpolateGaps().toDoubleArray(),
+                1e-12);
+    }
+
+    @Test
+    public void validityMaskTest() {
+        double[] values = new double[200];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = i % 70 == 3 ? i : Double.NaN;
+        }
+        ValidityMask mask = ValidityMask.of(values);
+
+        assertEquals(3, mask.countValid());
+        assertEquals(197, mask.countMissing());
+        assertEquals(3, mask.nextValid(0));
+        assertEquals(73, mask.nextValid(4));
+        assertEquals(143, mask.nextValid(74));
+        assertEquals(-1, mask.nextValid(144));
+        assertEquals(73, mask.previousValid(142));
+        assertEquals(143, mask.previousValid(1000));
+        assertEquals(-1, mask.previousValid(2));
+        assertEquals(4, mask.nextMissing(3));
+        assertEquals(-1, ValidityMask.of(new double[]{1.0, 2.0}).nextMissing(0));
+    }
+
+    @Test
+    public void fillGapsTest() {
+        Instant start = LocalDateTime.of(2015, Month.JANUARY, 5, 12, 0).toInstant(ZoneOffset.UTC);
+        List<Instant> timestamps = Arrays.asList(
+                start,
+                start.plus(Duration.ofMinutes(10)),
+                start.plus(Duration.ofMinutes(20)),
+                start.plus(Duration.ofMinutes(30)),
+                start.plus(Duration.ofMinutes(50)));
+        List<Double> values = Arrays.asList(0., 10., 10., Double.NaN, 40.);
+        TimeSeries<Double> timeSeries = new TimeSeries<>(timestamps, values, Double.class);
+        Duration step = Duration.ofMinutes(5);
+
+        TimeSeries<Double> stepped = timeSeries.fillGaps(step, Interpolation.STEP);
+        assertEquals(11, stepped.size());
+        assertEquals(start, stepped.getReading(0).getDatetime());
+        assertEquals(start.plus(Duration.ofMinutes(50)), stepped.getLastReading().getDatetime());
+        assertArrayEquals(
+                new double[]{0., 0., 10., 10., 10., 10., 10., 10., 10., 10., 40.},
+                stepped.toDoubleArray(), 1e-12);
+
+        assertArrayEquals(
+                new double[]{0., 5., 10., 10., 10., 15., 20., 25., 30., 35., 40.},
+                timeSeries.fillGaps(step, Interpolation.LINEAR).toDoubleArray(),
+                1e-12);
+
+        double nan = Double.NaN;
+        assertArrayEquals(
+                new double[]{0., 5., 10., 10., 10., nan, nan, nan, nan, nan, 40.},
+                timeSeries.fillGaps(step, Interpolation.LINEAR, Duration.ofMinutes(20))
+                .toDoubleArray(),
+                1e-12);
+
+        double[] cubic = timeSeries.fillGaps(Duration.ofMinutes(1), Interpolation.MONOTONE_CUBIC)
+                .toDoubleArray();
+        assertEquals(51, cubic.length);
+        assertEquals(0., cubic[0], 1e-12);
+        assertEquals(10., cubic[10], 1e-12);
+        assertEquals(10., cubic[15], 1e-12);
+        assertEquals(40., cubic[50], 1e-12);
+        for (int i = 1; i < cubic.length; ++i) {
+            assertTrue(cubic[i] >= cubic[i - 1]);
+        }
+
+        TimeSeries<Double> wider = timeSeries.fillGaps(
+                start.minus(Duration.ofMinutes(10)),
+                start.plus(Duration.ofMinutes(60)),
+                step, Interpolation.LINEAR, null);
+        assertEquals(15, wider.size());
+        assertTrue(Double.isNaN(wider.getDouble(0)));
+        assertEquals(0., wider.getDouble(2), 1e-12);
+        assertTrue(Double.isNaN(wider.getDouble(14)));
+    }
+
+    @Test
+    public void resampleToTest() {
+        List<Instant> timestamps = Arrays.asList(
+                Instant.ofEpochSecond(0),
+                Instant.ofEpochSecond(10),
+                Instant.ofEpochSecond(20),
+                Instant.ofEpochSecond(40));
+        List<Integer> values = Arrays.asList(0, 10, null, 40);
+        TimeSeries<Integer> timeSeries = new TimeSeries<>(timestamps, values, Integer.class);
+        List<Instant> target = Arrays.asList(
+                Instant.ofEpochSecond(-5),
+                Instant.ofEpochSecond(3),
+                Instant.ofEpochSecond(10),
+                Instant.ofEpochSecond(25),
+                Instant.ofEpochSecond(26),
+                Instant.ofEpochSecond(40),
+                Instant.ofEpochSecond(41));
+
+        TimeSeries<Double> resampled = timeSeries.resampleTo(target);
+
+        assertEquals(target, resampled.getDatetimes());
+        assertArrayEquals(
+                new double[]{Double.NaN, 3., 10., 25., 26., 40., Double.NaN},
+                resampled.toDoubleArray(), 1e-12);
+        assertArrayEquals(
+                new double[]{Double.NaN, 0., 10., 10., 10., 40., Double.NaN},
+                timeSeries.resampleTo(target, Interpolation.STEP).toDoubleArray(),
+                1e-12);
+    }
+
+    @Test
+    public void resampleCalendarTest() {
+        ZoneId zone = ZoneId.of("America/New_York");
+        List<Instant> timestamps = Arrays.asList(
+                ZonedDateTime.of(2016, 12, 31, 23, 0, 0, 0, zone).toInstant(),
+                ZonedDateTime.of(2017, 1, 1, 1, 0, 0, 0, zone).toInstant(),
+                ZonedDateTime.of(2017, 1, 1, 2, 0, 0, 0, zone).toInstant());
+        List<Integer> values = Arrays.asList(4, 2, 6);
+        TimeSeries<Integer> timeSeries = new TimeSeries<>(timestamps, values, Integer.class);
+
+        TimeSeries<Double> yearly = timeSeries.resample(ChronoUnit.YEARS, zone, Aggregation.MAX);
+
+        assertEquals(Arrays.asList(
+                ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, zone).toInstant(),
+                ZonedDateTime.of(2017, 1, 1, 0, 0, 0, 0, zone).toInstant()),
+                yearly.getDatetimes());
+        assertArrayEquals(new double[]{4., 6.}, yearly.toDoubleArray(), 1e-12);
+    }
+
+    @Test
+    public void downsampleLargestTriangleThreeBucketsTest() {
+        final int n = 100000;
+        List<Instant> timestamps = new ArrayList<>(n);
+        List<Double> values = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            timestamps.add(Instant.ofEpochSecond(i));
+            values.add(i == 54321 ? 100.0 : i == 7 ? Double.NaN : Math.sin(i / 5000.0));
+        }
+        TimeSeries<Double> timeSeries = new TimeSeries<>(timestamps, values, Double.class);
+
+        TimeSeries<Double> downsampled = timeSeries.downsample(500);
+
+        assertEquals(500, downsampled.size());
+        assertEquals(timestamps.get(0), downsampled.getReading(0).getDatetime());
+        assertEquals(timestamps.get(n - 1), downsampled.getLastReading().getDatetime());
+        assertTrue(downsampled.getDatetimes().contains(timestamps.get(54321)));
+        assertFalse(downsampled.getDatetimes().contains(timestamps.get(7)));
+        for (int i = 1; i < downsampled.size(); ++i) {
+            assertTrue(downsampled.getEpochMillis(i) > downsampled.getEpochMillis(i - 1));
+        }
+    }
+
+    @Test
+    public void downsampleMinMaxTest() {
+        List<Instant> timestamps = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            timestamps.add(Instant.ofEpochSecond(i));
+        }
+        List<Integer> values = Arrays.asList(3, 9, 1, 4, 4, 4, 0, 2);
+        TimeSeries<Integer> timeSeries = new TimeSeries<>(timestamps, values, Integer.class);
+
+        TimeSeries<Integer> downsampled = timeSeries.downsample(4, Downsampling.MIN_MAX);
+
+        assertEquals(Arrays.asList(9, 1, 4, 0), downsampled.getValues());
+        assertEquals(Arrays.asList(
+                timestamps.get(1), timestamps.get(2), timestamps.get(4), timestamps.get(6)),
+                downsampled.getDatetimes());
+        assertEquals(values, timeSeries.downsample(10).getValues());
+    }
+
+    @Test
+    public void sortAndDeduplicateTest() {
+        TimeSeries<Integer> ts = new TimeSeries<>(
+                Arrays.asList(
+                        Instant.ofEpochSecond(120), Instant.ofEpochSecond(0),
+                        Instant.ofEpochSecond(60), Instant.ofEpochSecond(0),
+                        Instant.ofEpochSecond(120)),
+                Arrays.asList(5, 1, 3, 2, null),
+                Integer.class);
+
+        TimeSeries<Integer> sorted = ts.sortByTime();
+        assertEquals(Arrays.asList(
+                Instant.ofEpochSecond(0), Instant.ofEpochSecond(0), Instant.ofEpochSecond(60),
+                Instant.ofEpochSecond(120), Instant.ofEpochSecond(120)),
+                sorted.getDatetimes());
+        assertEquals(Arrays.asList(1, 2, 3, 5, null), sorted.getValues());
+
+        List<Instant> unique = Arrays.asList(
+                Instant.ofEpochSecond(0), Instant.ofEpochSecond(60), Instant.ofEpochSecond(120));
+        TimeSeries<Integer> first = ts.deduplicate(Deduplication.FIRST);
+        assertEquals(unique, first.getDatetimes());
+        assertEquals(Arrays.asList(1, 3, 5), first.getValues());
+        assertEquals(Arrays.asList(2, 3, null), ts.deduplicate(Deduplication.LAST).getValues());
+        assertEquals(Arrays.asList(2, 3, 5), ts.deduplicate(Deduplication.MEAN).getValues());
+    }
+
+    @Test
+    public void sortByTimeLargeTest() {
+        final int n = 10000;
+        Random random = new Random(11);
+        List<Instant> datetimes = new ArrayList<>(n);
+        List<Double> values = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            final int second = random.nextInt(n / 4);
+            datetimes.add(Instant.ofEpochSecond(second));
+            values.add(second + i / (double) n);
+        }
+        TimeSeries<Double> sorted = new TimeSeries<>(datetimes, values, Double.class).sortByTime();
+
+        for (int i = 1; i < n; ++i) {
+            assertTrue(sorted.getDouble(i - 1) < sorted.getDouble(i));
+            assertEquals(sorted.getEpochMillis(i) / 1000, (long) sorted.getDouble(i));
+        }
+    }
+
+    @Test
+    public void missingValuesConversionTest() {
+        Instant start = LocalDateTime.of(2015, Month.JANUARY, 5, 12, 0).toInstant(ZoneOffset.UTC);
+        List<Instant> timestamps = Arrays.asList(
+                start,
+                start.plus(Duration.ofMinutes(10)),
+                start.plus(Duration.ofMinutes(20)),
+                start.plus(Duration.ofMinutes(30)));
+        TimeSeries<Double> timeSeries = new TimeSeries<>(
+                timestamps, Arrays.asList(1.5, 2.5, null, 4.), Double.class);
+
+        assertEquals(Arrays.asList(1, 2, null, 4),
+                timeSeries.toInteger().getValues());
+
+        TimeSeries<Number> resampled = timeSeries.resample(
+                start, start.plus(Duration.ofMinutes(30)), Duration.ofMinutes(5));
+        assertEquals(7, resampled.size());
+        assertEquals(1.5, resampled.getValues().get(0).doubleValue(), 1e-12);
+        assertEquals(2., resampled.getValues().get(1).doubleValue(), 1e-12);
+        assertEquals(2.5, resampled.getValues().get(2).doubleValue(), 1e-12);
+        for (int i = 3; i < 7; ++i) {
+            assertTrue(Double.isNaN(resampled.getValues().get(i).doubleValue()));
+        }
+    }
+
+    @Test
+    public void fillGapsDuplicateTest() {
+        Instant start = LocalDateTime.of(2015, Month.JANUARY, 5, 12, 0).toInstant(ZoneOffset.UTC);
+        List<Instant> timestamps = Arrays.asList(
+                start,
+                start.plus(Duration.ofMinutes(10)),
+                start.plus(Duration.ofMinutes(10)),
+                start.plus(Duration.ofMinutes(20)),
+                start.plus(Duration.ofMinutes(30)));
+        List<Double> values = Arrays.asList(0., 5., 10., 20., 20.);
+        TimeSeries<Double> timeSeries = new TimeSeries<>(timestamps, values, Double.class);
+        Duration step = Duration.ofMinutes(5);
+
+        assertArrayEquals(
+                new double[]{0., 5., 10., 15., 20., 20., 20.},
+                timeSeries.fillGaps(step, Interpolation.LINEAR).toDoubleArray(),
+                1e-12);
+
+        double[] cubic = timeSeries.fillGaps(step, Interpolation.MONOTONE_CUBIC)
+                .toDoubleArray();
+        assertEquals(7, cubic.length);
+        assertEquals(10., cubic[2], 1e-12);
+        for (int i = 0; i < cubic.length; ++i) {
+            assertFalse(Double.isNaN(cubic[i]) || Double.isInfinite(cubic[i]));
+            if (i > 0) {
+                assertTrue(cubic[i] >= cubic[i - 1]);
+            }
+        }
+        assertEquals(20., cubic[5], 1e-12);
+    }
 }
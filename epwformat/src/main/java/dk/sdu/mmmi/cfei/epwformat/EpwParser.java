@@ -1,5 +1,6 @@
 package dk.sdu.mmmi.cfei.epwformat;
 
+import dk.sdu.mmmi.cfei.dataframes.CategoricalColumn;
 import dk.sdu.mmmi.cfei.dataframes.DataFrame;
 import dk.sdu.mmmi.cfei.dataframes.Measure;
 import java.time.DayOfWeek;
@@ -115,7 +116,7 @@ public class EpwParser {
                 if (!values.containsKey(i)) {
                     List list;
                     if (type == String.class) {
-                        list = new ArrayList<String>(expectedDataFieldsCount);
+                        list = new CategoricalColumn(expectedDataFieldsCount);
                     } else if (type == Integer.class) {
                         list = new ArrayList<Integer>(expectedDataFieldsCount);
                     } else if (type == Double.class) {
@@ -330,7 +330,7 @@ public class SmapUpdater {
         final String sourceName = (String) commonMetadata.get("SourceName");
 
         LOGGER.log(Level.INFO, "Computing update payload");
-        JSONObject entirePayload = new JSONObject(dataframe.getColumns().stream()
+        JSONObject entirePayload = new JSONObject(dataframe.getColumnsView().stream()
                 .filter(column -> outputProperties.containsKey(column.name + "_PATH"))
                 .map(column -> {
                     LOGGER.log(Level.FINE, "Processing output column {0}", column);
@@ -373,7 +373,7 @@ public class SmapUpdater {
                                         column.metadata.get(key));
                             });
 
-                    TimeSeries timeseries = dataframe.getColumn(column);
+                    TimeSeries timeseries = dataframe.getColumnView(column);
 
                     Optional<UUID> suppliedUuid
                             = Optional.ofNullable(